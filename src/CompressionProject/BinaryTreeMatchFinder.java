@@ -0,0 +1,162 @@
+package CompressionProject;
+
+import java.util.Arrays;
+
+
+//binary tree match finder (like the BT finders in LZMA) for large windows
+//every position is a node in a binary search tree of the suffixes that start with the same 3 bytes, so a search walks
+//down the tree (about log of the window) instead of walking a long hash chain
+public class BinaryTreeMatchFinder implements MatchFinder {
+
+    public static final int MIN_MATCH = 3;
+    public static final int DEFAULT_MAX_DEPTH = 48; //how many tree nodes are visited per search (bounds the worst case)
+
+    private final int windowSize;
+    private final int maxMatchLength;
+    private final int maxDepth;
+
+    private int[] head; //root of the tree for each hash value
+    private int[] son; //left and right child for each position in the window (2 entries per position, ring buffer)
+    private int cyclicSize;
+    private int hashBits;
+
+    private byte[] data;
+    private int end;
+    private int matchDistance;
+    private int matchCount; //matches stored by the last findMatches call
+
+    //constructor for the match finder, the window can be much bigger than the hash chain one (up to 64MB)
+    public BinaryTreeMatchFinder(int windowSize, int maxMatchLength, int maxDepth) {
+        if (windowSize <= 0 || maxMatchLength <= 0 || maxDepth <= 0) {
+            throw new IllegalArgumentException("Window size, match length and depth must be positive.");
+        }
+        this.windowSize = windowSize;
+        this.maxMatchLength = maxMatchLength;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public void reset(byte[] data, int end) {
+        this.data = data;
+        this.end = end;
+        this.matchDistance = 0;
+
+        //the tables never need to be bigger than the input itself
+        int neededSize = Math.min(windowSize, end) + 1;
+        if (son == null || cyclicSize != neededSize) {
+            cyclicSize = neededSize;
+            son = new int[cyclicSize * 2];
+            hashBits = Math.max(10, Math.min(20, 32 - Integer.numberOfLeadingZeros(cyclicSize)));
+            head = new int[1 << hashBits];
+        }
+        Arrays.fill(head, -1);
+    }
+
+    //hash of the 3 bytes at pos
+    private int hash(int pos) {
+        int h = ((data[pos] & 0xFF) << 16) ^ ((data[pos + 1] & 0xFF) << 8) ^ (data[pos + 2] & 0xFF);
+        return (h * 0x9E3779B1) >>> (32 - hashBits);
+    }
+
+    @Override
+    public int findLongestMatch(int pos) {
+        matchDistance = 0;
+        int bestLength = insert(pos, true, null, null);
+        if (bestLength < MIN_MATCH) {
+            matchDistance = 0;
+            return 0;
+        }
+        return bestLength;
+    }
+
+    @Override
+    public int findMatches(int pos, int[] lengths, int[] distances) {
+        matchDistance = 0;
+        int bestLength = insert(pos, true, lengths, distances);
+        if (bestLength < MIN_MATCH) {
+            matchDistance = 0;
+            return 0;
+        }
+        return matchCount;
+    }
+
+    @Override
+    public int getMatchDistance() {
+        return matchDistance;
+    }
+
+    @Override
+    public void skip(int pos) {
+        insert(pos, false, null, null);
+    }
+
+    //inserts pos as the new root of its tree, the old tree is split into the left (smaller) and right (bigger) subtrees
+    //of pos while walking down, and the longest match seen on the way is the longest match in the tree
+    //(when lengths is given every new best match is also stored there)
+    private int insert(int pos, boolean search, int[] lengths, int[] distances) {
+        matchCount = 0;
+        int limit = Math.min(maxMatchLength, end - pos);
+        if (limit < MIN_MATCH) {
+            return 0; //not enough bytes left to hash
+        }
+
+        int h = hash(pos);
+        int current = head[h];
+        head[h] = pos;
+
+        int cyclicPos = pos % cyclicSize;
+        int ptrLeft = (cyclicPos << 1) + 1; //where the next smaller node will be linked
+        int ptrRight = cyclicPos << 1; //where the next bigger node will be linked
+        int lenLeft = 0; //bytes known to match on the smaller side
+        int lenRight = 0; //bytes known to match on the bigger side
+        int bestLength = 0;
+
+        for (int depth = 0; ; depth++) {
+            int delta = pos - current;
+            if (current < 0 || delta >= cyclicSize || delta > windowSize || depth >= maxDepth) {
+                son[ptrLeft] = -1;
+                son[ptrRight] = -1;
+                break;
+            }
+
+            int pair = (delta <= cyclicPos ? cyclicPos - delta : cyclicPos - delta + cyclicSize) << 1;
+            int len = Math.min(lenLeft, lenRight); //every node below already matches at least this much
+            if (data[current + len] == data[pos + len]) {
+                while (++len < limit && data[current + len] == data[pos + len]) {
+                    //extend the match
+                }
+                if (search && len > bestLength) {
+                    bestLength = len;
+                    matchDistance = delta;
+                    if (lengths != null && len >= MIN_MATCH) {
+                        if (matchCount == lengths.length) {
+                            matchCount--; //arrays are full, keep the longest match in the last entry
+                        }
+                        lengths[matchCount] = len;
+                        distances[matchCount] = delta;
+                        matchCount++;
+                    }
+                }
+                if (len >= limit) {
+                    //current is as good as pos, so pos takes its place in the tree
+                    son[ptrRight] = son[pair];
+                    son[ptrLeft] = son[pair + 1];
+                    break;
+                }
+            }
+
+            if ((data[current + len] & 0xFF) < (data[pos + len] & 0xFF)) {
+                son[ptrRight] = current;
+                ptrRight = pair + 1;
+                current = son[ptrRight];
+                lenRight = len;
+            } else {
+                son[ptrLeft] = current;
+                ptrLeft = pair;
+                current = son[ptrLeft];
+                lenLeft = len;
+            }
+        }
+        return bestLength;
+    }
+}
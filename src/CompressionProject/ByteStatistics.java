@@ -0,0 +1,265 @@
+package CompressionProject;
+
+import java.util.Arrays;
+
+
+//statistics of the bytes of an input, made in one pass over it (or over a few sampled chunks of a large input):
+//the histogram, the entropy, the order-1 entropy (bits per byte when the byte before is known) and the repeat rate
+//(share of positions whose next 4 bytes already came up earlier in the same 4KB chunk, what LZ77 could match).
+//windowRepeatRate is the full pass for repeats further apart than a chunk, up to the window of the match finder.
+//the 64K byte pair table of the order-1 entropy is only counted when order1Entropy is called, so the codec paths that
+//only want the entropy and the repeat rate pay for the histogram and the probe
+//
+//the histogram is counted into 4 arrays in turn and added up at the end, so runs of the same byte do not wait on the
+//store to the counter before (the same histogram goes straight into HuffmanCoding.buildHuffmanTree(int[], int))
+public final class ByteStatistics {
+
+    public static final int SAMPLE_CHUNK_SIZE = 4096; //bytes in each chunk
+    public static final int SAMPLE_CHUNKS = 4; //chunks spread over the input by sample (at most 16KB are looked at)
+
+    private static final int PROBE_HASH_BITS = 12;
+    private static final int INTERLEAVE_MIN_LENGTH = 1024; //shorter ranges are counted into one array
+    private static final long SEEN = 1L << 32; //set on every used probe entry, so 4 zero bytes are not an empty one
+    private static final int ANCHOR_BITS = 4; //1 in 16 positions is an anchor of windowRepeatRate
+    private static final int MAX_ANCHOR_TABLE_BITS = 16; //at most 64K anchors are remembered (512KB table)
+
+    private final byte[] data; //the input, kept for order1Entropy (it must not change until then)
+    private final int[] chunkStarts = new int[SAMPLE_CHUNKS];
+    private final int[] chunkEnds = new int[SAMPLE_CHUNKS];
+    private int chunks;
+    private final int[] counts = new int[256];
+    private final long[] probe = new long[1 << PROBE_HASH_BITS]; //SEEN | last 4 bytes with each hash in the chunk
+    private long total;
+    private long positions;
+    private long repeats;
+
+    private ByteStatistics(byte[] data) {
+        this.data = data;
+    }
+
+    //statistics of all of data[start..end)
+    public static ByteStatistics of(byte[] data, int start, int end) {
+        checkRange(data, start, end);
+        ByteStatistics statistics = new ByteStatistics(data);
+        for (int from = start; from < end; from += SAMPLE_CHUNK_SIZE) {
+            statistics.addChunk(from, Math.min(end, from + SAMPLE_CHUNK_SIZE));
+        }
+        return statistics;
+    }
+
+    //statistics of SAMPLE_CHUNKS chunks spread over data[start..end), the first one at start and the last one ending
+    //at end (the whole range if it is not longer than the chunks)
+    public static ByteStatistics sample(byte[] data, int start, int end) {
+        checkRange(data, start, end);
+        if (end - start <= (long) SAMPLE_CHUNK_SIZE * SAMPLE_CHUNKS) {
+            return of(data, start, end);
+        }
+        ByteStatistics statistics = new ByteStatistics(data);
+        int step = (end - start - SAMPLE_CHUNK_SIZE) / (SAMPLE_CHUNKS - 1);
+        for (int chunk = 0; chunk < SAMPLE_CHUNKS; chunk++) {
+            int from = chunk == SAMPLE_CHUNKS - 1 ? end - SAMPLE_CHUNK_SIZE : start + chunk * step;
+            statistics.addChunk(from, from + SAMPLE_CHUNK_SIZE);
+        }
+        return statistics;
+    }
+
+    //histogram of data[start..end) (index is the byte value)
+    public static int[] histogram(byte[] data, int start, int end) {
+        checkRange(data, start, end);
+        int[] counts = new int[256];
+        addHistogram(data, start, end, counts);
+        return counts;
+    }
+
+    //adds the bytes of data[start..end) to counts
+    public static void addHistogram(byte[] data, int start, int end, int[] counts) {
+        int i = start;
+        if (end - start >= INTERLEAVE_MIN_LENGTH) {
+            int[] counts1 = new int[256];
+            int[] counts2 = new int[256];
+            int[] counts3 = new int[256];
+            for (; i + 4 <= end; i += 4) {
+                counts[data[i] & 0xFF]++;
+                counts1[data[i + 1] & 0xFF]++;
+                counts2[data[i + 2] & 0xFF]++;
+                counts3[data[i + 3] & 0xFF]++;
+            }
+            for (int b = 0; b < 256; b++) {
+                counts[b] += counts1[b] + counts2[b] + counts3[b];
+            }
+        }
+        for (; i < end; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+    }
+
+    //entropy of a histogram in bits per byte
+    public static double entropy(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        double entropy = 0.0;
+        for (int count : counts) {
+            if (count > 0) {
+                double frequency = (double) count / total;
+                entropy -= frequency * (Math.log(frequency) / Math.log(2));
+            }
+        }
+        return entropy;
+    }
+
+    //number of different values in a histogram
+    public static int distinct(int[] counts) {
+        int distinct = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    //counts one chunk: histogram and the 4 byte repeat probe (the probe table starts empty for every chunk)
+    private void addChunk(int from, int to) {
+        if (chunks < SAMPLE_CHUNKS) {
+            chunkStarts[chunks] = from;
+            chunkEnds[chunks] = to;
+        }
+        chunks++;
+        addHistogram(data, from, to, counts);
+        total += to - from;
+
+        Arrays.fill(probe, 0L);
+        int sequence = 0;
+        for (int pos = from; pos < Math.min(to, from + 3); pos++) {
+            sequence = (sequence << 8) | (data[pos] & 0xFF);
+        }
+        for (int pos = from + 3; pos < to; pos++) {
+            //the 4 bytes ending at pos, rolled in one byte at a time
+            sequence = (sequence << 8) | (data[pos] & 0xFF);
+            int h = (sequence * 0x9E3779B1) >>> (32 - PROBE_HASH_BITS);
+            long entry = SEEN | (sequence & 0xFFFFFFFFL);
+            if (probe[h] == entry) {
+                repeats++;
+            }
+            probe[h] = entry;
+            positions++;
+        }
+    }
+
+    private static void checkRange(byte[] data, int start, int end) {
+        if (start < 0 || end > data.length || start > end) {
+            throw new IllegalArgumentException("Invalid range.");
+        }
+    }
+
+    //the histogram (a copy, index is the byte value)
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    //number of bytes counted
+    public long getTotal() {
+        return total;
+    }
+
+    //entropy in bits per byte
+    public double entropy() {
+        return entropy(counts);
+    }
+
+    //entropy in bits per byte when the byte before is known (lower than entropy() for text, where one letter says a lot
+    //about the next one, on a 16KB sample it also comes out too low for random bytes since most pairs are seen once)
+    public double order1Entropy() {
+        //the pairs of the sampled chunks, or of the whole input when it was counted in more chunks than are kept
+        int[] pairCounts = new int[256 * 256]; //index is the byte before << 8 | the byte
+        long pairs = 0;
+        if (chunks <= SAMPLE_CHUNKS) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                pairs += addPairs(chunkStarts[chunk], chunkEnds[chunk], pairCounts);
+            }
+        } else {
+            for (int from = chunkStarts[0]; from < chunkStarts[0] + total; from += SAMPLE_CHUNK_SIZE) {
+                pairs += addPairs(from, (int) Math.min(chunkStarts[0] + total, from + SAMPLE_CHUNK_SIZE), pairCounts);
+            }
+        }
+        if (pairs == 0) {
+            return 0.0;
+        }
+        double bits = 0.0;
+        for (int before = 0; before < 256; before++) {
+            long contextTotal = 0;
+            for (int b = 0; b < 256; b++) {
+                contextTotal += pairCounts[before << 8 | b];
+            }
+            for (int b = 0; b < 256 && contextTotal > 0; b++) {
+                int count = pairCounts[before << 8 | b];
+                if (count > 0) {
+                    bits -= count * (Math.log((double) count / contextTotal) / Math.log(2));
+                }
+            }
+        }
+        return bits / pairs;
+    }
+
+    //counts the byte pairs of one chunk and returns how many there are
+    private int addPairs(int from, int to, int[] pairCounts) {
+        int previous = data[from] & 0xFF;
+        for (int pos = from + 1; pos < to; pos++) {
+            int b = data[pos] & 0xFF;
+            pairCounts[previous << 8 | b]++;
+            previous = b;
+        }
+        return to - from - 1;
+    }
+
+    //share of the positions whose next 4 bytes came up earlier in the same chunk (near 0 for random, encrypted or
+    //already compressed data)
+    public double repeatRate() {
+        return positions == 0 ? 0.0 : (double) repeats / positions;
+    }
+
+    //share of the anchors in data[start..end) whose 4 bytes came up earlier at most window bytes before, the bytes
+    //from historyStart to start only count as earlier ones. the anchors are the positions whose 4 bytes hash to the
+    //top 1/16 of the hash range, so a repeated stretch has the same anchors as its first copy at any distance and
+    //alignment. one pass over the range, the table keeps the last position of each anchor
+    public static double windowRepeatRate(byte[] data, int historyStart, int start, int end, int window) {
+        checkRange(data, historyStart, end);
+        if (start < historyStart || start > end || window <= 0) {
+            throw new IllegalArgumentException("Invalid range.");
+        }
+        int anchorsInWindow = (int) Math.min(window, end - historyStart) >>> ANCHOR_BITS;
+        int tableBits = Math.max(8, Math.min(MAX_ANCHOR_TABLE_BITS, 32 - Integer.numberOfLeadingZeros(anchorsInWindow)));
+        long[] table = new long[1 << tableBits]; //(position + 1) << 32 | the 4 bytes, 0 for an empty entry
+        long anchors = 0;
+        long repeats = 0;
+        int sequence = 0;
+        for (int pos = historyStart; pos < Math.min(end, historyStart + 3); pos++) {
+            sequence = (sequence << 8) | (data[pos] & 0xFF);
+        }
+        for (int pos = historyStart + 3; pos < end; pos++) {
+            sequence = (sequence << 8) | (data[pos] & 0xFF);
+            int h = sequence * 0x9E3779B1;
+            if (h >>> (32 - ANCHOR_BITS) != 0) {
+                continue;
+            }
+            //the anchor bits are 0, the table index is the hash bits below them
+            int index = h >>> (32 - ANCHOR_BITS - tableBits);
+            long entry = table[index];
+            if (pos >= start) {
+                anchors++;
+                if (entry != 0 && (int) entry == sequence && pos - ((int) (entry >>> 32) - 1) <= window) {
+                    repeats++;
+                }
+            }
+            table[index] = (long) (pos + 1) << 32 | (sequence & 0xFFFFFFFFL);
+        }
+        return anchors == 0 ? 0.0 : (double) repeats / anchors;
+    }
+
+    //number of different byte values
+    public int distinct() {
+        return distinct(counts);
+    }
+}
@@ -5,87 +5,711 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Class for combined compression using LZ77Dynamic and HuffmanCoding.
+ * 
+ * The compressed bytes describe themselves, so they can be decompressed in any
+ * process and compress/decompress can run on any number of threads at once.
+ * The LZ77 tuples are split into separate alphabets that each get their own
+ * Huffman code, so the very different statistics of literals, lengths and
+ * distances are not mixed in one table. Like in Deflate, lengths and distances
+ * are sent as a bucket code plus extra bits (see LengthDistanceCodes):
+ * 
+ * <pre>
+ * 4 bytes   CODED_BLOCK_MAGIC
+ * varint    uncompressed length
+ * varint    number of tuples
+ * literal stream         the next byte of every tuple
+ * length code stream     the length code of every tuple (0 = literal only)
+ * distance code stream   the distance code of every tuple with a match
+ * extra bits stream      the extra bits of every tuple, packed first bit highest
+ * </pre>
+ * 
+ * Varints hold 7 bits per byte, lowest bits first, with the high bit set on
+ * every byte but the last. Each stream is written as:
+ * 
+ * <pre>
+ * varint    number of bytes in the stream * 4, plus the stream mode
+ * 1 byte    FSE layout (0 = one coded stream, 1 = 4 interleaved ones), only if the stream is FSE coded
+ * n bytes   canonical Huffman code lengths (HuffmanCoding.writeCodeLengths) or FSE counts (FseCoding.writeHeader)
+ * rest      Huffman or FSE coded stream bytes, or the raw bytes
+ * </pre>
+ * 
+ * The stream modes are 0 for one Huffman coded bit stream, 1 for raw bytes, 2
+ * for 4 interleaved Huffman coded bit streams after a jump table
+ * (HuffmanCoding.encodeInterleaved), which the decoder reads side by side, and
+ * 3 for FSE (tANS) coded bytes, in the layout given by the byte after the
+ * header (4 interleaved streams like mode 2 come from
+ * FseCoding.encodeInterleaved). A stream is stored raw when its header and
+ * coded bits would not be smaller (short or random streams). FSE decodes
+ * about a third slower than the Huffman tables, so a stream is only FSE coded
+ * when it saves more than a quarter bit per byte of the stream over Huffman.
+ * That pays off for skewed streams like the length codes, where a symbol is
+ * worth well under the 1 bit a Huffman code takes at least. Streams of
+ * MIN_INTERLEAVED_LENGTH bytes or more are interleaved.
+ * 
+ * compressParallel splits the input into blocks that are compressed on
+ * several threads and writes them into a block container:
+ * 
+ * <pre>
+ * 4 bytes   BLOCK_CONTAINER_MAGIC
+ * 4 bytes   total uncompressed length
+ * 4 bytes   overlap (bytes before each block that it may match, 0 = independent blocks)
+ * 4 bytes   number of blocks
+ * block index, per block: 4 bytes offset of the block in the container, 4 bytes compressed length,
+ *           4 bytes uncompressed length
+ * the blocks, each in the layout above
+ * </pre>
+ * 
+ * With the index every block's place in the input and in the container is known
+ * up front, so decompressParallel can decode independent blocks at the same time.
+ * 
+ * Blocks where a quick sample and a pass over the match window find almost no
+ * repeats (random, encrypted or already compressed data) skip LZ77 and hold
+ * the bytes as one stream, stored raw when the sampled entropy is close to 8
+ * bits per byte:
+ * 
+ * <pre>
+ * 4 bytes   LITERAL_BLOCK_MAGIC
+ * varint    uncompressed length
+ * the bytes as one stream (Huffman or FSE coded, or raw, like the streams above)
+ * </pre>
+ * 
+ * Small records compressed with a CompressionDictionary match into the
+ * dictionary content and use its pretrained Huffman codes, so they carry no
+ * code lengths:
+ * 
+ * <pre>
+ * 4 bytes   DICTIONARY_BLOCK_MAGIC
+ * 4 bytes   dictionary id (CompressionDictionary.getId)
+ * varint    uncompressed length
+ * varint    number of tuples
+ * literals, length codes and distance codes, each Huffman coded with the dictionary's code and padded to a byte
+ * the extra bits, packed first bit highest
+ * </pre>
  */
 public class CombinedCompression {
-    private static HuffmanCoding huffmanCoding;
+
+    public static final int BLOCK_CONTAINER_MAGIC = 0xC0B10C01; // first int of a block container
+    public static final int DICTIONARY_BLOCK_MAGIC = 0xC0B10C04; // first int of a record compressed with a dictionary
+    public static final int CODED_BLOCK_MAGIC = 0xC0B10C06; // first int of a block with length and distance codes
+    public static final int LITERAL_BLOCK_MAGIC = 0xC0B10C07; // first int of a block stored without LZ77
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20; // 1MB blocks for compressParallel
+    public static final int MAX_CODE_LENGTH = HuffmanDecoder.TABLE_BITS; // stream codes are decoded with one table lookup
+
+    private static final int MIN_PROBE_LENGTH = 256; // smaller blocks always go through LZ77
+    private static final double MIN_MATCH_RATE = 0.05; // fewer 4 byte repeats than this in the sample and the window and LZ77 is skipped
+    private static final double STORED_ENTROPY = 7.5; // sampled bits per byte above which the bytes are not Huffman coded
+
+    private static final int STREAM_HUFFMAN = 0; // stream modes (lowest 2 bits of the stream header)
+    private static final int STREAM_RAW = 1;
+    private static final int STREAM_INTERLEAVED = 2;
+    private static final int STREAM_FSE = 3;
+    private static final int FSE_SINGLE = 0; // FSE layouts (the byte after the header of an FSE stream)
+    private static final int FSE_INTERLEAVED = 1;
+    private static final int MIN_INTERLEAVED_LENGTH = 1024; // shorter Huffman and FSE streams are not split into 4
+    private static final int FSE_DECODE_COST_SHIFT = 5; // FSE has to save more than 1/32 byte per byte of the stream
 
     /**
      * Compresses the input string using LZ77Dynamic followed by Huffman coding.
      * 
-     * @param input the input string to compress
+     * @param input the input string to compress (its UTF-8 bytes are compressed)
      * @return a byte array of the compressed data
      */
     public static byte[] compress(String input) {
-        // Step 1: Dynamic LZ77 Compression
-        LZ77Dynamic dynamicCompressor = new LZ77Dynamic(input);
-        List<LZ77Dynamic.LZ77CompressedData> lz77Compressed = dynamicCompressor.compress(input);
-        byte[] lz77ByteArray = lz77ToByteArray(lz77Compressed);
+        return compress(input.getBytes(StandardCharsets.UTF_8));
+    }
 
-        // Debug: Print LZ77 byte array size
-        System.out.println("LZ77 Byte Array Size: " + lz77ByteArray.length);
+    /**
+     * Compresses any bytes (text or binary) using LZ77Dynamic followed by Huffman coding.
+     * 
+     * @param input the bytes to compress
+     * @return a byte array of the compressed data
+     */
+    public static byte[] compress(byte[] input) {
+        // Step 0: skip LZ77 if there is nothing to match (the tuned window can be anything, so all of the input is looked at)
+        byte[] literalBlock = encodeIfIncompressible(input, 0, 0, input.length, Math.max(1, input.length));
+        if (literalBlock != null) {
+            return literalBlock;
+        }
 
-        // Step 2: Huffman Compression
-        Map<Byte, Integer> frequencyMap = calculateFrequency(lz77ByteArray);
-        huffmanCoding = new HuffmanCoding(); // Initialize HuffmanCoding instance
-        huffmanCoding.buildHuffmanTree(frequencyMap);
-        String huffmanEncoded = huffmanCoding.encode(lz77ByteArray);
+        // Step 1: Dynamic LZ77 Compression, settings picked by trial compressing samples
+        LZ77Dynamic dynamicCompressor = new LZ77Tuner().tune(input, 0, input.length);
+        LZ77TokenBuffer tokens = dynamicCompressor.compressToBuffer(input);
 
-        // Debug: Print Huffman encoded string length
-        System.out.println("Huffman Encoded Length: " + huffmanEncoded.length());
+        // Step 2: Huffman Compression of the literal, length and distance streams
+        return encodeTokens(tokens);
+    }
 
-        // Convert Huffman encoded binary string to byte array
-        byte[] huffmanCompressedBytes = huffmanStringToBytes(huffmanEncoded);
+    /**
+     * Compresses any bytes with the fixed match finder settings of a compression
+     * level (see CompressionLevel) in place of the tuned settings of compress.
+     * 
+     * @param input the bytes to compress
+     * @param level the compression level, from CompressionLevel.FASTEST to CompressionLevel.MAX
+     * @return a byte array of the compressed data
+     */
+    public static byte[] compress(byte[] input, int level) {
+        CompressionLevel settings = CompressionLevel.of(level);
+        byte[] literalBlock = encodeIfIncompressible(input, 0, 0, input.length, settings.windowSize);
+        if (literalBlock != null) {
+            return literalBlock;
+        }
+        LZ77Dynamic dynamicCompressor = settings.createCompressor();
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(Math.max(16, input.length / 8));
+        dynamicCompressor.compress(input, 0, input.length, tokens);
+        return encodeTokens(tokens);
+    }
 
-        // Debug: Print Huffman compressed byte array size
-        System.out.println("Huffman Compressed Byte Array Size: " + huffmanCompressedBytes.length);
+    /**
+     * Compresses the input in independent 1MB blocks on the common ForkJoinPool.
+     * 
+     * @param input the bytes to compress
+     * @return a block container with the compressed blocks
+     */
+    public static byte[] compressParallel(byte[] input) {
+        return compressParallel(input, DEFAULT_BLOCK_SIZE, 0, ForkJoinPool.commonPool());
+    }
 
-        return huffmanCompressedBytes;
+    /**
+     * Splits the input into blocks and compresses them at the same time on the
+     * executor, each block with its own LZ77Dynamic and Huffman stage. The blocks
+     * are written in order into a block container.
+     * 
+     * @param input     the bytes to compress
+     * @param blockSize the uncompressed size of each block (the last one can be smaller)
+     * @param overlap   how many bytes before each block it may match (a dictionary
+     *                  from the previous block, better ratio but the blocks then
+     *                  have to be decompressed in order), 0 for independent blocks
+     * @param executor  the executor that runs the block tasks
+     * @return a block container with the compressed blocks
+     */
+    public static byte[] compressParallel(byte[] input, int blockSize, int overlap, ExecutorService executor) {
+        return compressParallel(input, blockSize, overlap, null, executor);
     }
 
     /**
-     * Decompresses the given compressed byte array back to the original string.
+     * Compresses the input in independent 1MB blocks on the common ForkJoinPool,
+     * every block with the settings of the compression level.
      * 
-     * @param compressedBytes the byte array to decompress
-     * @return the decompressed string
+     * @param input the bytes to compress
+     * @param level the compression level, from CompressionLevel.FASTEST to CompressionLevel.MAX
+     * @return a block container with the compressed blocks
      */
-    public static String decompress(byte[] compressedBytes) {
-        // Convert compressed bytes back to Huffman encoded string
-        String huffmanEncoded = bytesToHuffmanString(compressedBytes);
+    public static byte[] compressParallel(byte[] input, int level) {
+        return compressParallel(input, DEFAULT_BLOCK_SIZE, 0, CompressionLevel.of(level), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like compressParallel(input, blockSize, overlap, executor), but with the
+     * settings of a compression level, or the tuned settings of every block if
+     * level is null.
+     */
+    private static byte[] compressParallel(byte[] input, int blockSize, int overlap, CompressionLevel level,
+            ExecutorService executor) {
+        if (blockSize <= 0 || overlap < 0) {
+            throw new IllegalArgumentException("Block size must be positive and overlap must not be negative.");
+        }
+        int blockCount = (input.length + blockSize - 1) / blockSize;
+        List<Future<byte[]>> futures = new ArrayList<>(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            int start = block * blockSize;
+            int end = Math.min(input.length, start + blockSize);
+            int historyStart = Math.max(0, start - overlap);
+            futures.add(executor.submit(() -> compressBlock(input, historyStart, start, end, level)));
+        }
+
+        List<byte[]> blocks = new ArrayList<>(blockCount);
+        int headerSize = 16 + 12 * blockCount;
+        int totalSize = headerSize;
+        for (Future<byte[]> future : futures) {
+            byte[] block = waitForTask(future);
+            blocks.add(block);
+            totalSize += block.length;
+        }
+
+        ByteBuffer output = ByteBuffer.allocate(totalSize);
+        output.putInt(BLOCK_CONTAINER_MAGIC);
+        output.putInt(input.length);
+        output.putInt(overlap);
+        output.putInt(blockCount);
+        int blockOffset = headerSize;
+        for (int block = 0; block < blockCount; block++) {
+            output.putInt(blockOffset);
+            output.putInt(blocks.get(block).length);
+            output.putInt(Math.min(blockSize, input.length - block * blockSize));
+            blockOffset += blocks.get(block).length;
+        }
+        for (byte[] block : blocks) {
+            output.put(block);
+        }
+        return output.array();
+    }
+
+    /**
+     * Compresses input[start..end) as one block (single block layout), the bytes
+     * from historyStart to start can be matched but are not in the block. The
+     * settings come from the level, or are tuned for the block if it is null.
+     */
+    private static byte[] compressBlock(byte[] input, int historyStart, int start, int end, CompressionLevel level) {
+        int window = level != null ? level.windowSize : Math.max(1, end - historyStart);
+        byte[] literalBlock = encodeIfIncompressible(input, historyStart, start, end, window);
+        if (literalBlock != null) {
+            return literalBlock;
+        }
+        // the match finder only sees this copy, so nothing before historyStart is used
+        byte[] data = Arrays.copyOfRange(input, historyStart, end);
+        LZ77Dynamic dynamicCompressor = level != null ? level.createCompressor()
+                : new LZ77Tuner().tune(data, start - historyStart, data.length);
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer();
+        dynamicCompressor.compress(data, start - historyStart, data.length, tokens);
+        return encodeTokens(tokens);
+    }
+
+    /**
+     * Waits for a block task and passes on its exception as it was thrown.
+     */
+    private static <T> T waitForTask(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a block.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Block task failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the LZ77 tuples as one block (see the class comment): the header,
+     * the Huffman coded literal, length code and distance code streams and the
+     * extra bits.
+     * 
+     * @param tokens the LZ77 tuples of the block
+     * @return the compressed block
+     */
+    public static byte[] encodeTokens(LZ77TokenBuffer tokens) {
+        LengthDistanceCodes codes = LengthDistanceCodes.fromTokens(tokens);
+        byte[] literals = encodeStream(tokens.literalStream());
+        byte[] lengthCodes = encodeStream(codes.getLengthCodes());
+        byte[] distanceCodes = encodeStream(codes.getDistanceCodes());
+        byte[] extraBits = encodeStream(codes.getExtraBits());
+
+        ByteBuffer output = ByteBuffer.allocate(14 + literals.length + lengthCodes.length + distanceCodes.length
+                + extraBits.length);
+        output.putInt(CODED_BLOCK_MAGIC);
+        Varint.put(output, (int) tokens.getDecodedLength());
+        Varint.put(output, tokens.size());
+        output.put(literals).put(lengthCodes).put(distanceCodes).put(extraBits);
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    /**
+     * Compresses one small record with a preset dictionary (see the class
+     * comment). Nothing is printed, this is meant to be called for every record
+     * of a large set.
+     * 
+     * @param input      the record
+     * @param dictionary the dictionary, decompression needs the same one
+     * @return the compressed record
+     */
+    public static byte[] compress(byte[] input, CompressionDictionary dictionary) {
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(Math.max(16, input.length / 4));
+        dictionary.createCompressor().compress(input, dictionary, tokens);
+        LengthDistanceCodes codes = LengthDistanceCodes.fromTokens(tokens);
+        byte[] literals = tokens.literalStream();
+        byte[] lengthCodes = codes.getLengthCodes();
+        byte[] distanceCodes = codes.getDistanceCodes();
+        HuffmanCoding literalCode = dictionary.getLiteralCode();
+        HuffmanCoding lengthCode = dictionary.getLengthCode();
+        HuffmanCoding distanceCode = dictionary.getDistanceCode();
 
-        // Debug: Print Huffman encoded string (from bytes)
-        System.out.println("Huffman Encoded (from bytes): " + huffmanEncoded);
+        long size = 18 + (literalCode.getEncodedBitLength(literals, 0, literals.length) + 7) / 8
+                + (lengthCode.getEncodedBitLength(lengthCodes, 0, lengthCodes.length) + 7) / 8
+                + (distanceCode.getEncodedBitLength(distanceCodes, 0, distanceCodes.length) + 7) / 8
+                + codes.getExtraBits().length;
+        ByteBuffer output = ByteBuffer.allocate((int) size);
+        output.putInt(DICTIONARY_BLOCK_MAGIC);
+        output.putInt(dictionary.getId());
+        Varint.put(output, input.length);
+        Varint.put(output, tokens.size());
+        literalCode.encode(literals, 0, literals.length, output);
+        lengthCode.encode(lengthCodes, 0, lengthCodes.length, output);
+        distanceCode.encode(distanceCodes, 0, distanceCodes.length, output);
+        output.put(codes.getExtraBits());
+        return Arrays.copyOf(output.array(), output.position());
+    }
 
-        // Step 1: Huffman Decompression
-        byte[] decodedBytes = huffmanCoding.decode(huffmanEncoded);
+    /**
+     * Decompresses a record written by compress(byte[], CompressionDictionary).
+     * 
+     * @param compressedBytes the compressed record
+     * @param dictionary      the dictionary it was compressed with
+     * @return the record
+     * @throws IllegalArgumentException if the bytes are not a valid record for this dictionary
+     */
+    public static byte[] decompressToBytes(byte[] compressedBytes, CompressionDictionary dictionary) {
+        ByteBuffer input = ByteBuffer.wrap(compressedBytes);
+        try {
+            if (input.getInt() != DICTIONARY_BLOCK_MAGIC) {
+                throw new IllegalArgumentException("Not a record compressed with a dictionary.");
+            }
+            if (input.getInt() != dictionary.getId()) {
+                throw new IllegalArgumentException("Record was compressed with a different dictionary.");
+            }
+            int length = Varint.get(input);
+            int tupleCount = Varint.get(input);
+            if (tupleCount > length || tupleCount > 8L * input.remaining()) { // every literal code is at least 1 bit
+                throw new IllegalArgumentException("Invalid block header.");
+            }
+            byte[] literals = new byte[tupleCount];
+            dictionary.getLiteralDecoder().decode(input, literals, 0, tupleCount);
+            byte[] lengthCodes = new byte[tupleCount];
+            dictionary.getLengthDecoder().decode(input, lengthCodes, 0, tupleCount);
+            int matches = 0;
+            long extraBitCount = 0;
+            for (byte code : lengthCodes) {
+                if (code != 0) {
+                    matches++;
+                }
+                extraBitCount += LengthDistanceCodes.extraBitCount(code);
+            }
+            byte[] distanceCodes = new byte[matches];
+            dictionary.getDistanceDecoder().decode(input, distanceCodes, 0, matches);
+            for (byte code : distanceCodes) {
+                extraBitCount += LengthDistanceCodes.extraBitCount(code);
+            }
+            if ((extraBitCount + 7) / 8 != input.remaining()) {
+                throw new IllegalArgumentException("Extra bits do not match the codes.");
+            }
+            byte[] extraBits = new byte[input.remaining()];
+            input.get(extraBits);
+
+            LZ77TokenBuffer tokens = new LengthDistanceCodes(lengthCodes, distanceCodes, extraBits).toTokens(literals);
+            if (tokens.getDecodedLength() != length) {
+                throw new IllegalArgumentException("Tuples do not add up to the block length.");
+            }
+            // only the part of the dictionary the matches reach back into is copied in front of the output
+            int window = tokens.windowNeeded();
+            if (window > dictionary.size()) {
+                throw new IllegalArgumentException("Matches reach back further than the dictionary.");
+            }
+            byte[] output = new byte[window + length];
+            dictionary.copyContentTail(output, window);
+            tokens.decodeInto(output, 0, window);
+            return window == 0 ? output : Arrays.copyOfRange(output, window, output.length);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Compressed data is truncated.", e);
+        }
+    }
+
+    /**
+     * Writes data[start..end) as a literal block (see the class comment) if
+     * LZ77 would find almost nothing to match. A quick sample
+     * (ByteStatistics.sample) only sees repeats inside its 4KB chunks, so before
+     * a block is given up on, one pass over the block and the history before it
+     * (ByteStatistics.windowRepeatRate) looks for repeats up to the window of the
+     * match finder. The bytes are stored raw if the sampled entropy is close to
+     * 8 bits per byte and Huffman coded otherwise.
+     * 
+     * @param data         the input
+     * @param historyStart the first byte before the block that LZ77 may match
+     * @param start        the first byte of the block
+     * @param end          the end of the block
+     * @param window       the longest match distance of the match finder
+     * @return the literal block, or null if the block should be LZ77 compressed
+     */
+    public static byte[] encodeIfIncompressible(byte[] data, int historyStart, int start, int end, int window) {
+        if (end - start < MIN_PROBE_LENGTH) {
+            return null;
+        }
+        ByteStatistics statistics = ByteStatistics.sample(data, start, end);
+        if (statistics.repeatRate() >= MIN_MATCH_RATE
+                || ByteStatistics.windowRepeatRate(data, historyStart, start, end, window) >= MIN_MATCH_RATE) {
+            return null;
+        }
+        byte[] stream;
+        if (statistics.entropy() > STORED_ENTROPY) {
+            // Huffman coding would save next to nothing, so no frequencies or codes are made
+            ByteBuffer raw = ByteBuffer.allocate(10 + end - start);
+            Varint.put(raw, (long) (end - start) << 2 | STREAM_RAW);
+            raw.put(data, start, end - start);
+            stream = Arrays.copyOf(raw.array(), raw.position());
+        } else {
+            stream = encodeStream(Arrays.copyOfRange(data, start, end));
+        }
+        ByteBuffer output = ByteBuffer.allocate(9 + stream.length);
+        output.putInt(LITERAL_BLOCK_MAGIC);
+        Varint.put(output, end - start);
+        output.put(stream);
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    /**
+     * Decodes one compressed block (in any of the layouts in the class comment)
+     * straight into a byte array that already holds the window before it. The
+     * buffer moves past the block.
+     * 
+     * @param block       the compressed block
+     * @param out         the output, out[windowStart..outPos) is the window
+     * @param windowStart the first byte a match may copy from
+     * @param outPos      where the decoded bytes start
+     * @param outEnd      where the decoded bytes must end
+     * @return the position after the last decoded byte
+     * @throws IllegalArgumentException if the block is not valid compressed data
+     */
+    public static int decodeBlockInto(ByteBuffer block, byte[] out, int windowStart, int outPos, int outEnd) {
+        int magic = block.remaining() < 4 ? 0 : block.getInt(block.position());
+        if (magic == DICTIONARY_BLOCK_MAGIC) {
+            throw new IllegalArgumentException("Record was compressed with a dictionary, decompress it with the dictionary.");
+        }
+        if (magic == LITERAL_BLOCK_MAGIC) {
+            return decodeLiteralBlock(block, out, outPos, outEnd);
+        }
+        if (magic != CODED_BLOCK_MAGIC) {
+            throw new IllegalArgumentException("Not a compressed block.");
+        }
+        return decodeTokens(block, outEnd - outPos).decodeInto(out, windowStart, outPos);
+    }
 
-        // Debug: Print size of decoded bytes
-        System.out.println("Decoded Bytes Size: " + decodedBytes.length);
+    /**
+     * Reads the streams of a block with length and distance codes into a token
+     * buffer, checked against the block length. Every stream is bounded by the
+     * bytes left in the block before it is allocated.
+     */
+    private static LZ77TokenBuffer decodeTokens(ByteBuffer block, int maxLength) {
+        try {
+            block.getInt(); // CODED_BLOCK_MAGIC, checked by the caller
+            int length = Varint.get(block);
+            int tupleCount = Varint.get(block);
+            if (length > maxLength || tupleCount > length) {
+                throw new IllegalArgumentException("Invalid block header.");
+            }
+            byte[] literals = decodeStream(block, tupleCount);
+            if (literals.length != tupleCount) {
+                throw new IllegalArgumentException("Literal stream does not match the number of tuples.");
+            }
+            byte[] lengthCodes = decodeStream(block, tupleCount);
+            byte[] distanceCodes = decodeStream(block, tupleCount);
+            byte[] extraBits = decodeStream(block, (int) Math.min(Integer.MAX_VALUE, 8L * tupleCount)); // 2 * 29 bits per tuple
+            LZ77TokenBuffer tokens = new LengthDistanceCodes(lengthCodes, distanceCodes, extraBits).toTokens(literals);
+            if (tokens.getDecodedLength() != length) {
+                throw new IllegalArgumentException("Tuples do not add up to the block length.");
+            }
+            return tokens;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Compressed data is truncated.", e);
+        }
+    }
 
-        // Ensure that the decoded byte array length is a multiple of 4
-        int padding = 4 - (decodedBytes.length % 4);
-        if (padding != 4) { // If padding is needed
-            byte[] paddedBytes = new byte[decodedBytes.length + padding];
-            System.arraycopy(decodedBytes, 0, paddedBytes, 0, decodedBytes.length);
-            decodedBytes = paddedBytes;
-            System.out.println("Padded decoded bytes to length: " + decodedBytes.length);
+    /**
+     * Decodes a literal block into a new array, the stream is bounded by the
+     * bytes left in the block before it is allocated.
+     */
+    private static byte[] decodeLiteralBlock(ByteBuffer block) {
+        try {
+            block.getInt(); // LITERAL_BLOCK_MAGIC, checked by the caller
+            int length = Varint.get(block);
+            byte[] bytes = decodeStream(block, length);
+            if (bytes.length != length) {
+                throw new IllegalArgumentException("Invalid block header.");
+            }
+            return bytes;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Compressed data is truncated.", e);
         }
+    }
 
-        // Step 2: Convert byte array back to LZ77CompressedData using the dynamic class
-        List<LZ77Dynamic.LZ77CompressedData> lz77DecompressedDataDynamic = byteArrayToLz77Dynamic(decodedBytes);
+    /**
+     * Decodes a literal block straight into the output, raw bytes are copied
+     * without a stream array in between.
+     */
+    private static int decodeLiteralBlock(ByteBuffer block, byte[] out, int outPos, int outEnd) {
+        try {
+            block.getInt(); // LITERAL_BLOCK_MAGIC, checked by the caller
+            int length = Varint.get(block);
+            long header = Varint.getLong(block);
+            int mode = (int) (header & 3);
+            if (length > outEnd - outPos || header >>> 2 != length) {
+                throw new IllegalArgumentException("Invalid block header.");
+            }
+            if (mode == STREAM_RAW) {
+                block.get(out, outPos, length);
+            } else if (length > 0) {
+                decodeCodedStream(block, mode, out, outPos, length);
+            }
+            return outPos + length;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Compressed data is truncated.", e);
+        }
+    }
 
-        // Convert the dynamic compressed data to standard compressed data
-        List<LZ77CompressedData> lz77DecompressedData = convertToStandardCompressedData(lz77DecompressedDataDynamic);
+    /**
+     * Reads the uncompressed length from the header of a block without moving
+     * the buffer.
+     */
+    private static int peekBlockLength(ByteBuffer block) {
+        int magic = block.remaining() < 5 ? 0 : block.getInt(block.position());
+        if (magic != CODED_BLOCK_MAGIC && magic != LITERAL_BLOCK_MAGIC) {
+            throw new IllegalArgumentException("Not a compressed block.");
+        }
+        try {
+            ByteBuffer header = block.duplicate();
+            header.position(header.position() + 4);
+            return Varint.get(header);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Compressed data is truncated.", e);
+        }
+    }
 
-        // Step 3: LZ77 Decompression using the standard LZ77 class
-        String decompressedString = LZ77.decompress(lz77DecompressedData);
+    /**
+     * Writes one stream of a block, Huffman coded with its own code, FSE coded
+     * if it saves enough to pay for its slower decoding, or raw if neither is
+     * smaller. The codes are at most MAX_CODE_LENGTH bits long so the decoder
+     * takes its single table path, longer streams are split into 4 interleaved
+     * ones so it can decode them side by side.
+     */
+    private static byte[] encodeStream(byte[] bytes) {
+        if (bytes.length == 0) {
+            return new byte[] { 0 };
+        }
+        int[] counts = ByteStatistics.histogram(bytes, 0, bytes.length);
+        HuffmanCoding huffmanCoding = new HuffmanCoding(); // new instance for every call, nothing is shared
+        huffmanCoding.buildHuffmanTree(counts, MAX_CODE_LENGTH);
+        boolean interleaved = bytes.length >= MIN_INTERLEAVED_LENGTH;
+        long codedSize = huffmanCoding.getCodeLengthsHeaderSize() + (interleaved
+                ? huffmanCoding.getInterleavedSize(bytes, 0, bytes.length)
+                : (huffmanCoding.getEncodedBitLength(counts) + 7) / 8);
+
+        // FSE only when the bytes it saves pay for its slower decoding of every byte of the stream
+        byte[] fseStream = null;
+        FseCoding fseCoding = FseCoding.fromCounts(counts);
+        long fseCost = bytes.length >> FSE_DECODE_COST_SHIFT;
+        long fseSize = 1 + fseCoding.getHeaderSize() + (fseCoding.getEstimatedBitLength(counts) + 7) / 8;
+        if (fseSize + fseCost < Math.min(codedSize, bytes.length)) {
+            fseStream = interleaved ? fseCoding.encodeInterleaved(bytes, 0, bytes.length)
+                    : fseCoding.encode(bytes, 0, bytes.length);
+            fseSize = 1 + fseCoding.getHeaderSize() + fseStream.length;
+        }
+
+        int mode;
+        if (fseStream != null && fseSize + fseCost < Math.min(codedSize, bytes.length)) {
+            mode = STREAM_FSE;
+            codedSize = fseSize;
+        } else {
+            mode = codedSize >= bytes.length ? STREAM_RAW : interleaved ? STREAM_INTERLEAVED : STREAM_HUFFMAN;
+        }
+        ByteBuffer output = ByteBuffer.allocate(10 + (int) Math.min(codedSize, bytes.length));
+        Varint.put(output, (long) bytes.length << 2 | mode);
+        if (mode == STREAM_RAW) {
+            output.put(bytes);
+        } else if (mode == STREAM_FSE) {
+            output.put((byte) (interleaved ? FSE_INTERLEAVED : FSE_SINGLE));
+            fseCoding.writeHeader(output);
+            output.put(fseStream);
+        } else {
+            huffmanCoding.writeCodeLengths(output);
+            if (mode == STREAM_INTERLEAVED) {
+                huffmanCoding.encodeInterleaved(bytes, 0, bytes.length, output);
+            } else {
+                huffmanCoding.encode(bytes, 0, bytes.length, output);
+            }
+        }
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    /**
+     * Reads one stream written by encodeStream, the buffer moves past it. A
+     * stream longer than maxCount (more than the block can hold) is rejected
+     * before anything is allocated.
+     */
+    private static byte[] decodeStream(ByteBuffer input, int maxCount) {
+        long header = Varint.getLong(input);
+        long count = header >>> 2;
+        int mode = (int) (header & 3);
+        if (count > maxCount || count > maxStreamCount(mode, input.remaining())) {
+            throw new IllegalArgumentException("Invalid stream length " + count + ".");
+        }
+        byte[] decodedBytes = new byte[(int) count];
+        if (mode == STREAM_RAW) {
+            input.get(decodedBytes);
+        } else if (count > 0) {
+            decodeCodedStream(input, mode, decodedBytes, 0, (int) count);
+        }
+        return decodedBytes;
+    }
+
+    /**
+     * Most bytes a stream in this mode can hold in the given number of
+     * compressed bytes: a raw byte takes a byte, a Huffman code at least 1 bit
+     * and FSE at least 1 bit per table of symbols (FseCoding.maxSymbols).
+     */
+    private static long maxStreamCount(int mode, int compressedBytes) {
+        if (mode == STREAM_RAW) {
+            return compressedBytes;
+        }
+        return mode == STREAM_FSE ? FseCoding.maxSymbols(8L * compressedBytes) : 8L * compressedBytes;
+    }
+
+    /**
+     * Reads the code lengths and the Huffman coded bytes (or the FSE counts and
+     * the FSE coded bytes) of a stream that is not raw into
+     * out[offset..offset+count).
+     */
+    private static void decodeCodedStream(ByteBuffer input, int mode, byte[] out, int offset, int count) {
+        if (mode == STREAM_FSE) {
+            int layout = input.get();
+            if (layout != FSE_SINGLE && layout != FSE_INTERLEAVED) {
+                throw new IllegalArgumentException("Invalid FSE layout " + layout + ".");
+            }
+            FseCoding fseCoding = FseCoding.readHeader(input);
+            if (layout == FSE_INTERLEAVED) {
+                fseCoding.decodeInterleaved(input, out, offset, count);
+            } else {
+                fseCoding.decode(input, out, offset, count);
+            }
+            return;
+        }
+        HuffmanCoding huffmanCoding = HuffmanCoding.readCodeLengths(input);
+        if (mode == STREAM_INTERLEAVED) {
+            huffmanCoding.decodeInterleaved(input, out, offset, count);
+        } else if (mode == STREAM_HUFFMAN) {
+            huffmanCoding.decode(input, out, offset, count);
+        } else {
+            throw new IllegalArgumentException("Invalid stream mode " + mode + ".");
+        }
+    }
+
+    /**
+     * Decompresses the given compressed byte array back to the original string.
+     * 
+     * @param compressedBytes the byte array to decompress
+     * @return the decompressed string (the bytes decoded as UTF-8)
+     * @throws IllegalArgumentException if the bytes are not valid compressed data
+     */
+    public static String decompress(byte[] compressedBytes) {
+        String decompressedString = new String(decompressToBytes(compressedBytes), StandardCharsets.UTF_8);
 
         // Debug: Print the decompressed string
         System.out.println("Decompressed Content: " + decompressedString);
@@ -94,36 +718,217 @@ public class CombinedCompression {
     }
 
     /**
-     * Converts Huffman encoded binary string to byte array.
+     * Decompresses the given compressed byte array back to the original bytes.
      * 
-     * @param huffmanEncoded the Huffman encoded string
-     * @return the byte array representation
+     * @param compressedBytes the byte array to decompress
+     * @return the decompressed bytes
+     * @throws IllegalArgumentException if the bytes are not valid compressed data
      */
-    private static byte[] huffmanStringToBytes(String huffmanEncoded) {
-        int length = (huffmanEncoded.length() + 7) / 8; // Calculate required byte array size
-        byte[] huffmanCompressedBytes = new byte[length];
-        for (int i = 0; i < huffmanEncoded.length(); i++) {
-            if (huffmanEncoded.charAt(i) == '1') {
-                huffmanCompressedBytes[i / 8] |= 1 << (7 - (i % 8)); // Set bit position
+    public static byte[] decompressToBytes(byte[] compressedBytes) {
+        if (compressedBytes.length >= 4 && ByteBuffer.wrap(compressedBytes).getInt() == BLOCK_CONTAINER_MAGIC) {
+            return decompressBlocks(compressedBytes);
+        }
+        if (compressedBytes.length >= 4 && ByteBuffer.wrap(compressedBytes).getInt() == DICTIONARY_BLOCK_MAGIC) {
+            throw new IllegalArgumentException("Record was compressed with a dictionary, decompress it with the dictionary.");
+        }
+
+        ByteBuffer input = ByteBuffer.wrap(compressedBytes);
+        int magic = compressedBytes.length < 4 ? 0 : input.getInt(0);
+        if (magic == LITERAL_BLOCK_MAGIC) {
+            return decodeLiteralBlock(input);
+        }
+        if (magic == CODED_BLOCK_MAGIC) {
+            // the output is allocated once the tuples are read and add up to the length in the header
+            LZ77TokenBuffer tokens = decodeTokens(input, Integer.MAX_VALUE);
+            byte[] output = new byte[(int) tokens.getDecodedLength()];
+            tokens.decodeInto(output, 0, 0);
+            return output;
+        }
+        throw new IllegalArgumentException("Not a compressed block.");
+    }
+
+    /**
+     * Reads the uncompressed length from the header of compressed bytes, so the
+     * output for decompressInto can be allocated (or an old one reused) up front.
+     * 
+     * @param compressedBytes the compressed bytes
+     * @return the uncompressed length
+     * @throws IllegalArgumentException if the header is not valid
+     */
+    public static int getDecompressedLength(byte[] compressedBytes) {
+        int magic = compressedBytes.length < 4 ? 0 : ByteBuffer.wrap(compressedBytes).getInt();
+        if (magic == BLOCK_CONTAINER_MAGIC) {
+            return BlockIndex.read(compressedBytes).totalLength;
+        }
+        if (magic == DICTIONARY_BLOCK_MAGIC) {
+            try {
+                return Varint.get(ByteBuffer.wrap(compressedBytes, 8, compressedBytes.length - 8));
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Compressed data is truncated.", e);
             }
         }
-        return huffmanCompressedBytes;
+        return peekBlockLength(ByteBuffer.wrap(compressedBytes));
     }
 
     /**
-     * Converts byte array back to Huffman encoded string.
+     * Decompresses the given compressed bytes straight into a preallocated array,
+     * nothing is allocated for the output. Matches are copied with arraycopy
+     * (see LZ77.copyMatch).
      * 
-     * @param compressedBytes the byte array
-     * @return the Huffman encoded string
-     */
-    private static String bytesToHuffmanString(byte[] compressedBytes) {
-        StringBuilder huffmanEncoded = new StringBuilder();
-        for (byte b : compressedBytes) {
-            for (int i = 7; i >= 0; i--) {
-                huffmanEncoded.append(((b >> i) & 1) == 1 ? '1' : '0'); // Convert each bit to character
+     * @param compressedBytes the compressed bytes (not a dictionary record)
+     * @param out             the output, needs room for getDecompressedLength bytes after outOffset
+     * @param outOffset       where the decompressed bytes start
+     * @return the number of decompressed bytes
+     * @throws IllegalArgumentException if the bytes are not valid compressed data or do not fit
+     */
+    public static int decompressInto(byte[] compressedBytes, byte[] out, int outOffset) {
+        if (outOffset < 0 || outOffset > out.length) {
+            throw new IllegalArgumentException("Invalid output offset.");
+        }
+        int length = getDecompressedLength(compressedBytes);
+        if (length > out.length - outOffset) {
+            throw new IllegalArgumentException("Output is too small for " + length + " bytes.");
+        }
+        if (compressedBytes.length >= 4 && ByteBuffer.wrap(compressedBytes).getInt() == BLOCK_CONTAINER_MAGIC) {
+            BlockIndex index = BlockIndex.read(compressedBytes);
+            for (int block = 0; block < index.blockCount; block++) {
+                decodeBlock(compressedBytes, index, block, out, outOffset);
+            }
+            return length;
+        }
+        return decodeBlockInto(ByteBuffer.wrap(compressedBytes), out, outOffset, outOffset, outOffset + length) - outOffset;
+    }
+
+    /**
+     * Decompresses the given compressed byte array back to the original bytes.
+     * Independent blocks of a block container are decoded at the same time on the
+     * common ForkJoinPool, anything else is decoded like decompressToBytes.
+     * 
+     * @param compressedBytes the byte array to decompress
+     * @return the decompressed bytes
+     * @throws IllegalArgumentException if the bytes are not valid compressed data
+     */
+    public static byte[] decompressParallel(byte[] compressedBytes) {
+        return decompressParallel(compressedBytes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decompresses the given compressed byte array back to the original bytes.
+     * The blocks of a block container with independent blocks (no overlap) are
+     * decoded at the same time on the executor, each into its own part of one
+     * preallocated output array. Blocks with overlap depend on the block before
+     * them and are decoded in order.
+     * 
+     * @param compressedBytes the byte array to decompress
+     * @param executor        the executor that runs the block tasks
+     * @return the decompressed bytes
+     * @throws IllegalArgumentException if the bytes are not valid compressed data
+     */
+    public static byte[] decompressParallel(byte[] compressedBytes, ExecutorService executor) {
+        if (compressedBytes.length < 4 || ByteBuffer.wrap(compressedBytes).getInt() != BLOCK_CONTAINER_MAGIC) {
+            return decompressToBytes(compressedBytes);
+        }
+        BlockIndex index = BlockIndex.read(compressedBytes);
+        byte[] output = new byte[index.totalLength];
+        if (index.overlap > 0) {
+            for (int block = 0; block < index.blockCount; block++) {
+                decodeBlock(compressedBytes, index, block, output, 0);
+            }
+            return output;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(index.blockCount);
+        for (int block = 0; block < index.blockCount; block++) {
+            int blockNumber = block;
+            futures.add(executor.submit(() -> decodeBlock(compressedBytes, index, blockNumber, output, 0)));
+        }
+        for (Future<?> future : futures) {
+            waitForTask(future);
+        }
+        return output;
+    }
+
+    /**
+     * Decompresses a block container written by compressParallel, the blocks are
+     * decoded in order straight into one output array.
+     * 
+     * @param compressedBytes the block container
+     * @return the decompressed bytes
+     * @throws IllegalArgumentException if the bytes are not a valid block container
+     */
+    private static byte[] decompressBlocks(byte[] compressedBytes) {
+        BlockIndex index = BlockIndex.read(compressedBytes);
+        byte[] output = new byte[index.totalLength];
+        for (int block = 0; block < index.blockCount; block++) {
+            decodeBlock(compressedBytes, index, block, output, 0);
+        }
+        return output;
+    }
+
+    /**
+     * Decodes one block of a block container into its part of the output (the
+     * container's output starts at outputOffset). An independent block may only
+     * match inside its own part.
+     */
+    private static void decodeBlock(byte[] compressedBytes, BlockIndex index, int block, byte[] output, int outputOffset) {
+        ByteBuffer blockBytes = ByteBuffer.wrap(compressedBytes, index.offsets[block], index.compressedLengths[block]).slice();
+        int start = outputOffset + index.outputStarts[block];
+        int windowStart = index.overlap > 0 ? Math.max(outputOffset, start - index.overlap) : start;
+        int end = decodeBlockInto(blockBytes, output, windowStart, start, start + index.lengths[block]);
+        if (end != start + index.lengths[block]) {
+            throw new IllegalArgumentException("Block " + block + " decoded to the wrong length.");
+        }
+    }
+
+    /**
+     * The header and block index of a block container, checked against the
+     * container size.
+     */
+    private static class BlockIndex {
+        int totalLength;
+        int overlap;
+        int blockCount;
+        int[] offsets;
+        int[] compressedLengths;
+        int[] lengths;
+        int[] outputStarts; // where each block starts in the output
+
+        static BlockIndex read(byte[] compressedBytes) {
+            try {
+                ByteBuffer input = ByteBuffer.wrap(compressedBytes);
+                input.getInt(); // magic
+                BlockIndex index = new BlockIndex();
+                index.totalLength = input.getInt();
+                index.overlap = input.getInt();
+                index.blockCount = input.getInt();
+                if (index.totalLength < 0 || index.overlap < 0 || index.blockCount < 0
+                        || index.blockCount > (compressedBytes.length - 16) / 12) {
+                    throw new IllegalArgumentException("Invalid block container header.");
+                }
+                index.offsets = new int[index.blockCount];
+                index.compressedLengths = new int[index.blockCount];
+                index.lengths = new int[index.blockCount];
+                index.outputStarts = new int[index.blockCount];
+                long outputPos = 0;
+                for (int block = 0; block < index.blockCount; block++) {
+                    index.offsets[block] = input.getInt();
+                    index.compressedLengths[block] = input.getInt();
+                    index.lengths[block] = input.getInt();
+                    if (index.offsets[block] < 0 || index.compressedLengths[block] < 0 || index.lengths[block] < 0
+                            || (long) index.offsets[block] + index.compressedLengths[block] > compressedBytes.length) {
+                        throw new IllegalArgumentException("Invalid index entry for block " + block + ".");
+                    }
+                    index.outputStarts[block] = (int) outputPos;
+                    outputPos += index.lengths[block];
+                }
+                if (outputPos != index.totalLength) {
+                    throw new IllegalArgumentException("Blocks do not add up to the total length.");
+                }
+                return index;
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Compressed data is truncated.", e);
             }
         }
-        return huffmanEncoded.toString();
     }
 
     /**
@@ -133,16 +938,13 @@ public class CombinedCompression {
      * @return the byte array representation
      */
     public static byte[] lz77ToByteArray(List<LZ77Dynamic.LZ77CompressedData> lz77Output) {
-        List<Byte> byteList = new ArrayList<>();
+        byte[] byteArray = new byte[lz77Output.size() * LZ77TokenBuffer.TUPLE_BYTES];
+        int pos = 0;
         for (LZ77Dynamic.LZ77CompressedData data : lz77Output) {
-            byteList.add((byte) (data.offset >> 8)); // Higher byteoffset
-            byteList.add((byte) (data.offset)); // Lower byteoffset
-            byteList.add((byte) data.length); // Length of data 
-            byteList.add((byte) data.nextChar); // Next char adding
-        }
-        byte[] byteArray = new byte[byteList.size()];
-        for (int i = 0; i < byteList.size(); i++) {
-            byteArray[i] = byteList.get(i);
+            byteArray[pos++] = (byte) (data.offset >> 8); // Higher byteoffset
+            byteArray[pos++] = (byte) (data.offset); // Lower byteoffset
+            byteArray[pos++] = (byte) data.length; // Length of data 
+            byteArray[pos++] = (byte) data.nextChar; // Next char adding
         }
         return byteArray;
     }
@@ -172,32 +974,81 @@ public class CombinedCompression {
     }
 
     /**
-     * Converts LZ77Dynamic.LZ77CompressedData to LZ77CompressedData.
+     * Calculates the frequency map for Huffman coding. The compressor itself
+     * uses the histogram of ByteStatistics.histogram, this map is made from it
+     * for callers that want the used bytes only.
      * 
-     * @param dynamicData the dynamic compressed data
-     * @return the standard compressed data
+     * @param inputBytes the input byte array
+     * @return the frequency map
      */
-    private static List<LZ77CompressedData> convertToStandardCompressedData(
-            List<LZ77Dynamic.LZ77CompressedData> dynamicData) {
-        List<LZ77CompressedData> standardData = new ArrayList<>();
-        for (LZ77Dynamic.LZ77CompressedData data : dynamicData) {
-            standardData.add(new LZ77CompressedData(data.offset, data.length, data.nextChar));
+    public static Map<Byte, Integer> calculateFrequency(byte[] inputBytes) {
+        int[] counts = ByteStatistics.histogram(inputBytes, 0, inputBytes.length);
+        Map<Byte, Integer> frequencyMap = new HashMap<>();
+        for (int b = 0; b < 256; b++) {
+            if (counts[b] > 0) {
+                frequencyMap.put((byte) b, counts[b]);
+            }
         }
-        return standardData;
+        return frequencyMap;
     }
 
     /**
-     * Calculates the frequency map for Huffman coding.
+     * Compresses a file into another file. The input is read into one array with
+     * Files.readAllBytes and the result is written through a mapping of the output
+     * file, so there is no line reading, StringBuilder or charset decoding in
+     * between. Inputs larger than one block are compressed with compressParallel.
      * 
-     * @param inputBytes the input byte array
-     * @return the frequency map
+     * @param inputFile  the file to compress
+     * @param outputFile the file to write the compressed data to (replaced if it exists)
+     * @throws IOException if a file cannot be read or written
      */
-    public static Map<Byte, Integer> calculateFrequency(byte[] inputBytes) {
-        Map<Byte, Integer> frequencyMap = new HashMap<>();
-        for (byte b : inputBytes) {
-            frequencyMap.put(b, frequencyMap.getOrDefault(b, 0) + 1);
+    public static void compressFile(Path inputFile, Path outputFile) throws IOException {
+        byte[] input = Files.readAllBytes(inputFile);
+        byte[] compressedBytes = input.length > DEFAULT_BLOCK_SIZE ? compressParallel(input) : compress(input);
+        writeMapped(outputFile, compressedBytes);
+    }
+
+    /**
+     * Compresses a file like compressFile, with the settings of a compression level.
+     * 
+     * @param inputFile  the file to compress
+     * @param outputFile the file to write the compressed bytes to (replaced if it exists)
+     * @param level      the compression level, from CompressionLevel.FASTEST to CompressionLevel.MAX
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void compressFile(Path inputFile, Path outputFile, int level) throws IOException {
+        byte[] input = Files.readAllBytes(inputFile);
+        byte[] compressedBytes = input.length > DEFAULT_BLOCK_SIZE ? compressParallel(input, level) : compress(input, level);
+        writeMapped(outputFile, compressedBytes);
+    }
+
+    /**
+     * Decompresses a file written by compressFile (or any compressed bytes of this
+     * class) into another file, writing through a memory mapping.
+     * 
+     * @param inputFile  the compressed file
+     * @param outputFile the file to write the original bytes to (replaced if it exists)
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if the file is not valid compressed data
+     */
+    public static void decompressFile(Path inputFile, Path outputFile) throws IOException {
+        writeMapped(outputFile, decompressParallel(Files.readAllBytes(inputFile)));
+    }
+
+    /**
+     * Writes the bytes to a file through a read-write mapping of the output size.
+     * 
+     * @param file    the file to write (replaced if it exists)
+     * @param content the bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeMapped(Path file, byte[] content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, content.length);
+            mapped.put(content);
+            mapped.force();
         }
-        return frequencyMap;
     }
 
     /**
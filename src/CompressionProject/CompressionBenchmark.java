@@ -0,0 +1,261 @@
+package CompressionProject;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+//microbenchmarks for every compression stage, run with:
+//  java CompressionProject.CompressionBenchmark [sizes] [benchmark names]
+//e.g. "java CompressionProject.CompressionBenchmark 65536,1048576 lz77Compress huffmanDecode"
+//every benchmark runs on every input kind (text, log, random, repetitive) and size,
+//with warmup iterations first so the JIT has compiled the code before it is measured
+public class CompressionBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 10;
+    private static final long MIN_ITERATION_NANOS = 200_000_000L; //each iteration repeats the operation for at least 200ms
+    private static final int[] DEFAULT_SIZES = { 64 * 1024, 1024 * 1024 };
+
+    //results are written here so the JIT cannot remove the benchmarked work
+    private static volatile Object sink;
+
+    //the kinds of input, from low to high entropy
+    public enum InputKind {
+        REPETITIVE, LOG, TEXT, RANDOM
+    }
+
+    //one benchmarked operation, prepare() runs outside the timing
+    private interface Benchmark {
+        void prepare(byte[] input);
+
+        Object run();
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        List<String> selected = new ArrayList<>();
+        for (String arg : args) {
+            if (Character.isDigit(arg.charAt(0))) {
+                String[] parts = arg.split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Integer.parseInt(parts[i].trim());
+                }
+            } else {
+                selected.add(arg);
+            }
+        }
+
+        Map<String, Benchmark> benchmarks = createBenchmarks();
+        PrintStream out = System.out;
+        out.printf(Locale.ROOT, "%-22s %-11s %10s %14s %10s %10s%n", "benchmark", "input", "size", "ns/op", "+-%", "MB/s");
+        for (Map.Entry<String, Benchmark> entry : benchmarks.entrySet()) {
+            if (!selected.isEmpty() && !selected.contains(entry.getKey())) {
+                continue;
+            }
+            for (InputKind kind : InputKind.values()) {
+                for (int size : sizes) {
+                    byte[] input = generateInput(kind, size, 42);
+                    double[] result = measure(entry.getValue(), input);
+                    double mbPerSecond = input.length / (result[0] / 1e9) / (1024 * 1024);
+                    out.printf(Locale.ROOT, "%-22s %-11s %10d %14.0f %10.1f %10.2f%n", entry.getKey(), kind, size,
+                            result[0], result[1], mbPerSecond);
+                }
+            }
+        }
+    }
+
+    //returns the mean time per operation in ns and its standard deviation in percent
+    private static double[] measure(Benchmark benchmark, byte[] input) {
+        benchmark.prepare(input);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(benchmark);
+        }
+        double[] samples = new double[MEASURE_ITERATIONS];
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            samples[i] = runIteration(benchmark);
+        }
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= samples.length;
+        double variance = 0;
+        for (double sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        double deviation = Math.sqrt(variance / samples.length);
+        return new double[] { mean, 100 * deviation / mean };
+    }
+
+    //repeats the operation until the iteration took long enough, returns ns per operation
+    private static double runIteration(Benchmark benchmark) {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = benchmark.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_ITERATION_NANOS);
+        return (double) elapsed / operations;
+    }
+
+    private static Map<String, Benchmark> createBenchmarks() {
+        Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+
+        benchmarks.put("lz77Compress", new Benchmark() {
+            private byte[] data;
+
+            public void prepare(byte[] input) {
+                data = input;
+            }
+
+            public Object run() {
+                return LZ77.compress(data);
+            }
+        });
+
+        benchmarks.put("lz77DynamicCompress", new Benchmark() {
+            private byte[] data;
+
+            public void prepare(byte[] input) {
+                data = input;
+            }
+
+            //the same sampling and sizes as the LZ77Dynamic(byte[]) constructor, without its console output
+            public Object run() {
+                return LZ77Dynamic.adjustedFor(ByteStatistics.sample(data, 0, data.length), data.length)
+                        .compressToBuffer(data);
+            }
+        });
+
+        benchmarks.put("lz77Decompress", new Benchmark() {
+            private LZ77TokenBuffer tuples;
+
+            public void prepare(byte[] input) {
+                tuples = LZ77.compressToBuffer(input);
+            }
+
+            public Object run() {
+                return LZ77.decompressToBytes(tuples);
+            }
+        });
+
+        benchmarks.put("huffmanBuildTree", new Benchmark() {
+            private int[] frequencies;
+
+            public void prepare(byte[] input) {
+                frequencies = ByteStatistics.histogram(input, 0, input.length);
+            }
+
+            public Object run() {
+                HuffmanCoding huffman = new HuffmanCoding();
+                huffman.buildHuffmanTree(frequencies);
+                return huffman;
+            }
+        });
+
+        benchmarks.put("huffmanEncode", new Benchmark() {
+            private HuffmanCoding huffman;
+            private byte[] data;
+
+            public void prepare(byte[] input) {
+                data = input;
+                huffman = new HuffmanCoding();
+                huffman.buildHuffmanTree(ByteStatistics.histogram(input, 0, input.length));
+            }
+
+            public Object run() {
+                return huffman.encodeToBytes(data);
+            }
+        });
+
+        benchmarks.put("huffmanDecode", new Benchmark() {
+            private HuffmanCoding huffman;
+            private byte[] packed;
+            private int count;
+
+            public void prepare(byte[] input) {
+                huffman = new HuffmanCoding();
+                huffman.buildHuffmanTree(ByteStatistics.histogram(input, 0, input.length));
+                packed = huffman.encodeToBytes(input);
+                count = input.length;
+            }
+
+            public Object run() {
+                return huffman.decode(packed, count);
+            }
+        });
+
+        benchmarks.put("combinedRoundTrip", new Benchmark() {
+            private byte[] data;
+
+            public void prepare(byte[] input) {
+                data = input;
+            }
+
+            public Object run() {
+                return CombinedCompression.decompressToBytes(CombinedCompression.compress(data));
+            }
+        });
+
+        return benchmarks;
+    }
+
+    //builds a reproducible input of the given kind and size
+    public static byte[] generateInput(InputKind kind, int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        switch (kind) {
+        case RANDOM:
+            random.nextBytes(data);
+            return data;
+        case REPETITIVE: {
+            byte[] pattern = "abcabcabd the same line again and again\n".getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < size; i++) {
+                data[i] = pattern[i % pattern.length];
+            }
+            return data;
+        }
+        case LOG:
+            return fill(data, random, true);
+        default:
+            return fill(data, random, false);
+        }
+    }
+
+    //text from a small vocabulary with a skewed word distribution, as log lines or as sentences
+    private static byte[] fill(byte[] data, Random random, boolean logLines) {
+        String[] words = { "the", "of", "and", "compression", "data", "window", "match", "buffer", "length",
+                "offset", "huffman", "tree", "code", "symbol", "block", "stream", "input", "output", "value" };
+        String[] levels = { "INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR" };
+        StringBuilder sb = new StringBuilder(data.length + 128);
+        long time = 1_700_000_000_000L;
+        while (sb.length() < data.length) {
+            if (logLines) {
+                time += random.nextInt(1000);
+                sb.append(time).append(' ').append(levels[random.nextInt(levels.length)]).append(" [worker-")
+                        .append(random.nextInt(8)).append("] ");
+            }
+            int count = 4 + random.nextInt(10);
+            for (int i = 0; i < count; i++) {
+                //squaring the random index makes the first words far more common
+                double r = random.nextDouble();
+                sb.append(words[(int) (r * r * words.length)]).append(' ');
+            }
+            if (logLines) {
+                sb.append("id=").append(random.nextInt(100000));
+            }
+            sb.append(logLines ? "\n" : ". ");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, data, 0, data.length);
+        return data;
+    }
+}
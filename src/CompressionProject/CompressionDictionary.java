@@ -0,0 +1,188 @@
+package CompressionProject;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+
+//preset dictionary for compressing many small records one by one (made by DictionaryTrainer, used by
+//CombinedCompression.compress(byte[], CompressionDictionary)): the content is put in the LZ77 window before every
+//record so even its first bytes find matches, and the Huffman codes of the literal, length code and distance code
+//streams are trained once on sample records so a record does not carry its own code lengths
+//
+//one dictionary can be shared by any number of threads, it is not changed after it is made
+//
+//layout of toByteArray:
+//  4 bytes  DICTIONARY_MAGIC
+//  4 bytes  content length
+//  n bytes  content
+//  code lengths of the literal, length code and distance code streams (HuffmanCoding.writeCodeLengths each)
+public class CompressionDictionary {
+
+    public static final int DICTIONARY_MAGIC = 0xC0B1D1C7;
+    public static final int MAX_SIZE = 32 * 1024; //largest content
+    public static final int WINDOW_SIZE = 64 * 1024; //window of the record compressor (the whole content and 32KB of the record)
+    public static final int BUFFER_SIZE = 258; //longest match
+    public static final int MAX_CHAIN_DEPTH = HashChainMatchFinder.DEFAULT_MAX_CHAIN_DEPTH;
+
+    private final byte[] content;
+    private final HuffmanCoding literalCode;
+    private final HuffmanCoding lengthCode;
+    private final HuffmanCoding distanceCode;
+    private final HuffmanDecoder literalDecoder;
+    private final HuffmanDecoder lengthDecoder;
+    private final HuffmanDecoder distanceDecoder;
+    private final int id; //CRC32 of toByteArray, written in every record so a wrong dictionary is found
+    private final HashChainMatchFinder primedMatchFinder; //has every position of the content, copied for each record
+
+    //constructor from the content and the code length of every symbol of the three streams (index is the symbol),
+    //every literal and every length and distance code up to LengthDistanceCodes.MAX_CODE needs a code
+    public CompressionDictionary(byte[] content, int[] literalCodeLengths, int[] lengthCodeLengths, int[] distanceCodeLengths) {
+        if (content.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Dictionary content must not be longer than " + MAX_SIZE + " bytes.");
+        }
+        this.content = content.clone();
+        this.literalCode = createCode(literalCodeLengths, 255);
+        this.lengthCode = createCode(lengthCodeLengths, LengthDistanceCodes.MAX_CODE);
+        this.distanceCode = createCode(distanceCodeLengths, LengthDistanceCodes.MAX_CODE);
+        this.literalDecoder = new HuffmanDecoder(literalCode.getCodeLengths());
+        this.lengthDecoder = new HuffmanDecoder(lengthCode.getCodeLengths());
+        this.distanceDecoder = new HuffmanDecoder(distanceCode.getCodeLengths());
+
+        CRC32 crc = new CRC32();
+        crc.update(toByteArray());
+        this.id = (int) crc.getValue();
+
+        primedMatchFinder = new HashChainMatchFinder(WINDOW_SIZE, BUFFER_SIZE, MAX_CHAIN_DEPTH);
+        primedMatchFinder.reset(this.content, this.content.length);
+        for (int pos = 0; pos < this.content.length; pos++) {
+            primedMatchFinder.skip(pos);
+        }
+    }
+
+    //code for the lengths, symbols 0..maxSymbol must all have a code so any record can be written
+    private static HuffmanCoding createCode(int[] codeLengths, int maxSymbol) {
+        HuffmanCoding code = new HuffmanCoding();
+        code.buildFromCodeLengths(codeLengths);
+        for (int symbol = 0; symbol <= maxSymbol; symbol++) {
+            if (codeLengths[symbol] == 0) {
+                throw new IllegalArgumentException("Dictionary has no Huffman code for symbol " + symbol + ".");
+            }
+        }
+        return code;
+    }
+
+    //code lengths that give every symbol up to maxSymbol the same length (before any statistics are known)
+    static int[] flatCodeLengths(int maxSymbol) {
+        int bits = 32 - Integer.numberOfLeadingZeros(maxSymbol);
+        int[] lengths = new int[256];
+        Arrays.fill(lengths, 0, maxSymbol + 1, bits);
+        return lengths;
+    }
+
+    //writes the dictionary so it can be stored and loaded with fromByteArray
+    public byte[] toByteArray() {
+        ByteBuffer output = ByteBuffer.allocate(8 + content.length + literalCode.getCodeLengthsHeaderSize()
+                + lengthCode.getCodeLengthsHeaderSize() + distanceCode.getCodeLengthsHeaderSize());
+        output.putInt(DICTIONARY_MAGIC);
+        output.putInt(content.length);
+        output.put(content);
+        literalCode.writeCodeLengths(output);
+        lengthCode.writeCodeLengths(output);
+        distanceCode.writeCodeLengths(output);
+        return output.array();
+    }
+
+    //reads a dictionary written by toByteArray
+    public static CompressionDictionary fromByteArray(byte[] bytes) {
+        try {
+            ByteBuffer input = ByteBuffer.wrap(bytes);
+            if (input.getInt() != DICTIONARY_MAGIC) {
+                throw new IllegalArgumentException("Not a compression dictionary.");
+            }
+            int size = input.getInt();
+            if (size < 0 || size > Math.min(MAX_SIZE, input.remaining())) {
+                throw new IllegalArgumentException("Invalid dictionary content length " + size + ".");
+            }
+            byte[] content = new byte[size];
+            input.get(content);
+            int[] literalCodeLengths = HuffmanCoding.readCodeLengths(input).getCodeLengths();
+            int[] lengthCodeLengths = HuffmanCoding.readCodeLengths(input).getCodeLengths();
+            int[] distanceCodeLengths = HuffmanCoding.readCodeLengths(input).getCodeLengths();
+            return new CompressionDictionary(content, literalCodeLengths, lengthCodeLengths, distanceCodeLengths);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Dictionary is truncated.", e);
+        }
+    }
+
+    //compressor with the settings the primed match finder was made for
+    public LZ77Dynamic createCompressor() {
+        LZ77Dynamic compressor = new LZ77Dynamic(WINDOW_SIZE, BUFFER_SIZE);
+        compressor.setMaxChainDepth(MAX_CHAIN_DEPTH);
+        compressor.setParseMode(LZ77Dynamic.ParseMode.LAZY);
+        return compressor;
+    }
+
+    //the content followed by the input
+    byte[] prepend(byte[] input) {
+        byte[] data = Arrays.copyOf(content, content.length + input.length);
+        System.arraycopy(input, 0, data, content.length, input.length);
+        return data;
+    }
+
+    //a match finder over data (made by prepend) that already has every content position, or null if the settings
+    //are not the ones of createCompressor
+    MatchFinder createMatchFinder(byte[] data, int windowSize, int maxMatchLength, int maxChainDepth, int niceLength) {
+        if (!primedMatchFinder.hasSettings(windowSize, maxMatchLength, maxChainDepth, niceLength)) {
+            return null;
+        }
+        HashChainMatchFinder matchFinder = new HashChainMatchFinder(primedMatchFinder, data, data.length);
+        //the last positions of the content could not be hashed without the bytes after them
+        for (int pos = Math.max(0, content.length - HashChainMatchFinder.MIN_MATCH + 1); pos < content.length; pos++) {
+            matchFinder.skip(pos);
+        }
+        return matchFinder;
+    }
+
+    public byte[] getContent() {
+        return content.clone();
+    }
+
+    public int size() {
+        return content.length;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    //the last count bytes of the content, copied to out[0..count)
+    void copyContentTail(byte[] out, int count) {
+        System.arraycopy(content, content.length - count, out, 0, count);
+    }
+
+    HuffmanCoding getLiteralCode() {
+        return literalCode;
+    }
+
+    HuffmanCoding getLengthCode() {
+        return lengthCode;
+    }
+
+    HuffmanCoding getDistanceCode() {
+        return distanceCode;
+    }
+
+    HuffmanDecoder getLiteralDecoder() {
+        return literalDecoder;
+    }
+
+    HuffmanDecoder getLengthDecoder() {
+        return lengthDecoder;
+    }
+
+    HuffmanDecoder getDistanceDecoder() {
+        return distanceDecoder;
+    }
+}
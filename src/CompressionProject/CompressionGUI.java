@@ -14,9 +14,6 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
 
 
 //CompressionGUI class to show various compression algorithms by interface using (WindowBuilder)
@@ -180,13 +177,12 @@ public class CompressionGUI {
         HuffmanCoding huffmanCoding = new HuffmanCoding();
         byte[] inputBytes = input.getBytes(StandardCharsets.UTF_8);
 
-        //make frequency map and Huffman tree struct 
-        Map<Byte, Integer> frequencyMap = CombinedCompression.calculateFrequency(inputBytes);
-        huffmanCoding.buildHuffmanTree(frequencyMap);
+        //make the histogram and Huffman tree struct 
+        huffmanCoding.buildHuffmanTree(ByteStatistics.histogram(inputBytes, 0, inputBytes.length));
 
         //encode input
-        String encoded = huffmanCoding.encode(inputBytes);
-        int compressedSize = encoded.length() / 8;
+        byte[] encoded = huffmanCoding.encodeToBytes(inputBytes);
+        int compressedSize = encoded.length;
         //for the user to see in text area
         textArea.append("Huffman Compressed Size: " + compressedSize + " bytes\n");
 
@@ -197,7 +193,7 @@ public class CompressionGUI {
         textArea.append("Compression Savings: " + compressionSavings + "%\n");
 
         //check if decode is correctly done 
-        byte[] decoded = huffmanCoding.decode(encoded);
+        byte[] decoded = huffmanCoding.decode(encoded, inputBytes.length);
         String decompressed = new String(decoded, StandardCharsets.UTF_8);
         if (input.equals(decompressed)) {
             textArea.append("Huffman Decompression successful!\n");
@@ -219,8 +215,8 @@ public class CompressionGUI {
         textArea.append("Original Size: " + input.getBytes(StandardCharsets.UTF_8).length + " bytes\n");
 
         // Compress using LZ77
-        List<LZ77CompressedData> compressedData = LZ77.compress(input);
-        int compressedSize = compressedData.size() * 4; //offset 2 bytes-1 byte length-1 byte next character
+        LZ77TokenBuffer compressedData = LZ77.compressToBuffer(input.getBytes(StandardCharsets.UTF_8));
+        int compressedSize = compressedData.size() * LZ77TokenBuffer.TUPLE_BYTES; //offset 2 bytes-1 byte length-1 byte next character
         //for the user to see in the text area of the window
         textArea.append("LZ77 Compressed Size: " + compressedSize + " bytes\n");
 
@@ -255,14 +251,11 @@ public class CompressionGUI {
 
         //compress using LZ77Dynamic
         LZ77Dynamic dynamicCompressor = new LZ77Dynamic(input);
-        List<LZ77Dynamic.LZ77CompressedData> dynamicCompressedData = dynamicCompressor.compress(input);
-        int compressedSize = dynamicCompressedData.size() * 4; // 2 bytes for offset, 1 byte for length, 1 byte for nextChar
+        LZ77TokenBuffer tokens = dynamicCompressor.compressToBuffer(input.getBytes(StandardCharsets.UTF_8));
+        int compressedSize = tokens.size() * LZ77TokenBuffer.TUPLE_BYTES; // 2 bytes for offset, 1 byte for length, 1 byte for nextChar
 
         textArea.append("LZ77 Dynamic Compressed Size: " + compressedSize + " bytes\n");
 
-        //convert to standard LZ77CompressedData for decompression
-        List<LZ77CompressedData> standardCompressedData = convertToStandardCompressedData(dynamicCompressedData);
-
         //calc and display compression ratio
         double compressionRatio = (double) compressedSize / input.getBytes(StandardCharsets.UTF_8).length;
         double compressionSavings = (1 - compressionRatio) * 100;
@@ -270,20 +263,11 @@ public class CompressionGUI {
         textArea.append("Compression Savings: " + compressionSavings + "%\n");
 
         // check if done correctly
-        String decompressed = LZ77.decompress(standardCompressedData);
+        String decompressed = LZ77.decompress(tokens);
         if (input.equals(decompressed)) {
             textArea.append("LZ77 Dynamic Decompression successful!\n");
         } else {
             textArea.append("LZ77 Dynamic Decompression failed.\n");
         }
     }
-    //Converts from LZ77Dynamic(LZ77CompressedData) to  regular LZ77CompressedData
-    private List<LZ77CompressedData> convertToStandardCompressedData(
-            List<LZ77Dynamic.LZ77CompressedData> dynamicData) {
-        List<LZ77CompressedData> standardData = new ArrayList<>();
-        for (LZ77Dynamic.LZ77CompressedData data : dynamicData) {
-            standardData.add(new LZ77CompressedData(data.offset, data.length, data.nextChar));
-        }
-        return standardData;
-    }
 }
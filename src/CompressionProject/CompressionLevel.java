@@ -0,0 +1,84 @@
+package CompressionProject;
+
+
+//compression levels 1-9 (like the levels of zlib), each level sets how hard the LZ77 stage looks for matches:
+//
+//  level  window  max match  chain/depth  nice length  parse    match finder
+//  1      8KB     258        4            8            greedy   hash chain    (hot paths, fastest)
+//  2      16KB    258        8            16           greedy   hash chain
+//  3      32KB    258        16           32           greedy   hash chain
+//  4      32KB    258        16           32           lazy     hash chain
+//  5      32KB    258        32           64           lazy     hash chain
+//  6      64KB    258        64           128          lazy     hash chain    (DEFAULT)
+//  7      256KB   1024       128          258          lazy     hash chain
+//  8      1MB     1024       48           1024         lazy     binary tree
+//  9      4MB     4096       64           4096         optimal  binary tree   (archives, smallest output)
+//
+//the nice length is the "good enough" match: the hash chain search stops at a match that long and lazy parsing takes it
+//without looking at the next byte (the binary tree finder always searches to its depth)
+public final class CompressionLevel {
+
+    public static final int FASTEST = 1;
+    public static final int DEFAULT = 6;
+    public static final int MAX = 9;
+
+    private static final CompressionLevel[] LEVELS = {
+            new CompressionLevel(1, 8 * 1024, 258, 4, 8, LZ77Dynamic.ParseMode.GREEDY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(2, 16 * 1024, 258, 8, 16, LZ77Dynamic.ParseMode.GREEDY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(3, 32 * 1024, 258, 16, 32, LZ77Dynamic.ParseMode.GREEDY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(4, 32 * 1024, 258, 16, 32, LZ77Dynamic.ParseMode.LAZY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(5, 32 * 1024, 258, 32, 64, LZ77Dynamic.ParseMode.LAZY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(6, 64 * 1024, 258, 64, 128, LZ77Dynamic.ParseMode.LAZY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(7, 256 * 1024, 1024, 128, 258, LZ77Dynamic.ParseMode.LAZY, LZ77Dynamic.MatchFinderType.HASH_CHAIN),
+            new CompressionLevel(8, 1024 * 1024, 1024, 48, 1024, LZ77Dynamic.ParseMode.LAZY, LZ77Dynamic.MatchFinderType.BINARY_TREE),
+            new CompressionLevel(9, 4 * 1024 * 1024, 4096, 64, 4096, LZ77Dynamic.ParseMode.OPTIMAL, LZ77Dynamic.MatchFinderType.BINARY_TREE) };
+
+    public final int level;
+    public final int windowSize;
+    public final int bufferSize; //longest match
+    public final int maxChainDepth; //chain depth of the hash chain finder, tree depth of the binary tree finder
+    public final int niceLength;
+    public final LZ77Dynamic.ParseMode parseMode;
+    public final LZ77Dynamic.MatchFinderType matchFinderType;
+
+    private CompressionLevel(int level, int windowSize, int bufferSize, int maxChainDepth, int niceLength,
+            LZ77Dynamic.ParseMode parseMode, LZ77Dynamic.MatchFinderType matchFinderType) {
+        this.level = level;
+        this.windowSize = windowSize;
+        this.bufferSize = bufferSize;
+        this.maxChainDepth = maxChainDepth;
+        this.niceLength = niceLength;
+        this.parseMode = parseMode;
+        this.matchFinderType = matchFinderType;
+    }
+
+    //the settings of a level from FASTEST to MAX
+    public static CompressionLevel of(int level) {
+        if (level < FASTEST || level > MAX) {
+            throw new IllegalArgumentException("Compression level must be between " + FASTEST + " and " + MAX + ".");
+        }
+        return LEVELS[level - 1];
+    }
+
+    //a compressor with the settings of this level
+    public LZ77Dynamic createCompressor() {
+        return createCompressor(windowSize);
+    }
+
+    //a compressor with the settings of this level but a window of at most maxWindowSize (for a stream whose decoder
+    //keeps a fixed window)
+    public LZ77Dynamic createCompressor(int maxWindowSize) {
+        LZ77Dynamic compressor = new LZ77Dynamic(Math.min(windowSize, maxWindowSize), bufferSize);
+        compressor.setMaxChainDepth(maxChainDepth);
+        compressor.setNiceLength(niceLength);
+        compressor.setParseMode(parseMode);
+        compressor.setMatchFinderType(matchFinderType);
+        return compressor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Level %d (Window: %d, Buffer: %d, Chain: %d, Nice: %d, %s, %s)", level, windowSize,
+                bufferSize, maxChainDepth, niceLength, parseMode, matchFinderType);
+    }
+}
@@ -0,0 +1,156 @@
+package CompressionProject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+//output stream that compresses everything written to it in blocks (LZ77Dynamic + Huffman, like CombinedCompression)
+//the LZ77 window is kept from one block to the next, so memory use is one block plus one window for any input size
+//
+//stream layout, one frame per block:
+//  4 bytes  uncompressed block length (0 marks the end of the stream)
+//  4 bytes  compressed block length
+//  n bytes  the block (CombinedCompression.encodeTokens of the block's LZ77 tuples)
+public class CompressorOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20; //1MB blocks
+    public static final int MAX_BLOCK_SIZE = 1 << 26; //64MB, DecompressorInputStream rejects longer blocks
+    public static final int WINDOW_SIZE = 32 * 1024; //window kept across blocks (the decoder keeps the same window)
+    public static final int BUFFER_SIZE = 255; //longest match
+
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final LZ77Dynamic compressor; //for blocks too small to tune, or for every block if a level is set
+    private final LZ77Tuner tuner; //picks the settings of every full size block (windows up to WINDOW_SIZE only), null with a level
+    private final LZ77TokenBuffer tokens = new LZ77TokenBuffer(); //reused for every block
+
+    //window followed by the block that is being filled
+    private final byte[] buffer;
+    private int blockStart; //where the current block starts (everything before it is the window)
+    private int filled;
+    private boolean finished;
+
+    //constructor with the default block size
+    public CompressorOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    //constructor with a custom block size (bigger blocks give a little better compression, smaller ones less memory)
+    public CompressorOutputStream(OutputStream out, int blockSize) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ".");
+        }
+        this.out = new DataOutputStream(out);
+        this.blockSize = blockSize;
+        this.compressor = new LZ77Dynamic(WINDOW_SIZE, BUFFER_SIZE);
+        this.tuner = new LZ77Tuner(LZ77Tuner.withMaxWindow(LZ77Tuner.defaultCandidates(), WINDOW_SIZE),
+                LZ77Tuner.DEFAULT_SAMPLE_SIZE, LZ77Tuner.DEFAULT_BUDGET_PERCENT);
+        this.buffer = new byte[WINDOW_SIZE + blockSize];
+    }
+
+    //constructor with the settings of a compression level for every block (windows bigger than WINDOW_SIZE are cut to it)
+    public CompressorOutputStream(OutputStream out, int blockSize, int level) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ".");
+        }
+        this.out = new DataOutputStream(out);
+        this.blockSize = blockSize;
+        this.compressor = CompressionLevel.of(level).createCompressor(WINDOW_SIZE);
+        this.tuner = null;
+        this.buffer = new byte[WINDOW_SIZE + blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[filled++] = (byte) b;
+        if (filled - blockStart == blockSize) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int count = Math.min(len, blockSize - (filled - blockStart));
+            System.arraycopy(b, off, buffer, filled, count);
+            filled += count;
+            off += count;
+            len -= count;
+            if (filled - blockStart == blockSize) {
+                writeBlock();
+            }
+        }
+    }
+
+    //writes out the bytes so far as a (smaller) block and flushes the stream under it
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    //writes the last block and the end marker without closing the stream under it
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeBlock();
+        out.writeInt(0);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    //largest frame a block of this length can compress to: a tuple with a match covers at least 4 bytes and takes at
+    //most 3 code bytes and 2 * 29 extra bits, a literal takes 2 bytes, plus the block and stream headers
+    public static long maxCompressedLength(int length) {
+        return 3L * length + 64;
+    }
+
+    //compresses the current block as one frame and slides the window
+    private void writeBlock() throws IOException {
+        int length = filled - blockStart;
+        if (length == 0) {
+            return;
+        }
+        //blocks with nothing to match skip LZ77 (the decoder still keeps their bytes as the window)
+        byte[] compressed = CombinedCompression.encodeIfIncompressible(buffer, 0, blockStart, filled, WINDOW_SIZE);
+        if (compressed == null) {
+            tokens.clear();
+            LZ77Tuner.Candidate candidate = tuner != null ? tuner.choose(buffer, blockStart, filled) : null;
+            LZ77Dynamic blockCompressor = candidate != null ? candidate.createCompressor() : compressor;
+            blockCompressor.compress(buffer, blockStart, filled, tokens);
+            compressed = CombinedCompression.encodeTokens(tokens);
+        }
+        out.writeInt(length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+
+        //keep only the last WINDOW_SIZE bytes for the next block
+        int keep = Math.min(filled, WINDOW_SIZE);
+        System.arraycopy(buffer, filled - keep, buffer, 0, keep);
+        blockStart = keep;
+        filled = keep;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream is already finished.");
+        }
+    }
+}
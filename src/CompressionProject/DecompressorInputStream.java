@@ -0,0 +1,111 @@
+package CompressionProject;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+
+//input stream that reads a stream written by CompressorOutputStream and decompresses it one block at a time
+//(memory use is one block plus the window for any stream size, and blocks are at most
+//CompressorOutputStream.MAX_BLOCK_SIZE)
+public class DecompressorInputStream extends InputStream {
+
+    private final DataInputStream in;
+
+    //window followed by the block being read
+    private byte[] buffer = new byte[CompressorOutputStream.WINDOW_SIZE];
+    private int readPos; //next byte to return
+    private int available; //end of the decoded bytes in the buffer
+    private boolean endOfStream;
+
+    //constructor for the stream to read from
+    public DecompressorInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (readPos == available && !readBlock()) {
+            return -1;
+        }
+        return buffer[readPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (readPos == available && !readBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, available - readPos);
+        System.arraycopy(buffer, readPos, b, off, count);
+        readPos += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return available - readPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    //reads and decodes the next frame, returns false at the end marker
+    private boolean readBlock() throws IOException {
+        if (endOfStream) {
+            return false;
+        }
+        int length;
+        int compressedLength;
+        byte[] compressed;
+        try {
+            length = in.readInt();
+            if (length == 0) {
+                endOfStream = true;
+                return false;
+            }
+            compressedLength = in.readInt();
+            //checked before anything is allocated, so a corrupt header cannot ask for a huge buffer
+            if (length < 0 || length > CompressorOutputStream.MAX_BLOCK_SIZE || compressedLength < 0
+                    || compressedLength > CompressorOutputStream.maxCompressedLength(length)) {
+                throw new IOException("Invalid block header in compressed stream.");
+            }
+            compressed = new byte[compressedLength];
+            in.readFully(compressed);
+        } catch (EOFException e) {
+            throw new IOException("Unexpected end of compressed stream.", e);
+        }
+
+        //keep the last WINDOW_SIZE bytes in front of the new block
+        int keep = Math.min(available, CompressorOutputStream.WINDOW_SIZE);
+        if (buffer.length < keep + length) {
+            byte[] bigger = new byte[keep + length];
+            System.arraycopy(buffer, available - keep, bigger, 0, keep);
+            buffer = bigger;
+        } else {
+            System.arraycopy(buffer, available - keep, buffer, 0, keep);
+        }
+
+        try {
+            int end = CombinedCompression.decodeBlockInto(ByteBuffer.wrap(compressed), buffer, 0, keep, keep + length);
+            if (end != keep + length) {
+                throw new IOException("Block decoded to " + (end - keep) + " bytes, expected " + length + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt block in compressed stream.", e);
+        }
+        readPos = keep;
+        available = keep + length;
+        return true;
+    }
+}
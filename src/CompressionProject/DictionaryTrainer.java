@@ -0,0 +1,180 @@
+package CompressionProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+//builds a CompressionDictionary from sample records (a simpler version of the cover algorithm of the zstd trainer)
+//
+//1. every 8 byte substring is counted once per sample it is in
+//2. the samples are cut into overlapping segments, a segment scores the counts of the substrings in it that are in
+//   at least 2 samples, the best segments are taken until the dictionary is full (the substrings of a taken segment
+//   score 0 from then on, so the same text is not taken twice)
+//3. the best segment goes last in the content, closest to the record, so its matches get the shortest distances
+//4. the samples are compressed with that content and the literals, length codes and distance codes they use
+//   give the pretrained Huffman codes
+public class DictionaryTrainer {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64;
+
+    private static final int SUBSTRING_LENGTH = 8;
+    private static final int HASH_BITS = 20;
+
+    //one part of a sample that can go into the dictionary
+    private static class Segment {
+        final int sample;
+        final int start;
+        final int end;
+        long score;
+
+        Segment(int sample, int start, int end, long score) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+            this.score = score;
+        }
+    }
+
+    //trains a dictionary of at most dictionarySize bytes with the default segment size
+    public static CompressionDictionary train(List<byte[]> samples, int dictionarySize) {
+        return train(samples, dictionarySize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    //trains a dictionary of at most dictionarySize bytes from segments of segmentSize bytes
+    public static CompressionDictionary train(List<byte[]> samples, int dictionarySize, int segmentSize) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("At least one sample is needed.");
+        }
+        if (dictionarySize < 0 || dictionarySize > CompressionDictionary.MAX_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be between 0 and " + CompressionDictionary.MAX_SIZE + ".");
+        }
+        if (segmentSize < SUBSTRING_LENGTH) {
+            throw new IllegalArgumentException("Segment size must be at least " + SUBSTRING_LENGTH + ".");
+        }
+        byte[] content = buildContent(samples, dictionarySize, segmentSize);
+
+        //count the symbols of the records with the content in front of them (flat codes until the real ones are known)
+        CompressionDictionary untrained = new CompressionDictionary(content, CompressionDictionary.flatCodeLengths(255),
+                CompressionDictionary.flatCodeLengths(LengthDistanceCodes.MAX_CODE),
+                CompressionDictionary.flatCodeLengths(LengthDistanceCodes.MAX_CODE));
+        LZ77Dynamic compressor = untrained.createCompressor();
+        int[] literalCounts = new int[256];
+        int[] lengthCounts = new int[256];
+        int[] distanceCounts = new int[256];
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer();
+        for (byte[] sample : samples) {
+            tokens.clear();
+            compressor.compress(sample, untrained, tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                literalCounts[tokens.getNextByte(i) & 0xFF]++;
+                int length = tokens.getLength(i);
+                lengthCounts[LengthDistanceCodes.code(length)]++;
+                if (length > 0) {
+                    distanceCounts[LengthDistanceCodes.code(tokens.getOffset(i) - 1)]++;
+                }
+            }
+        }
+        return new CompressionDictionary(content, trainedCodeLengths(literalCounts, 255),
+                trainedCodeLengths(lengthCounts, LengthDistanceCodes.MAX_CODE),
+                trainedCodeLengths(distanceCounts, LengthDistanceCodes.MAX_CODE));
+    }
+
+    //picks the segments (steps 1-3 above)
+    private static byte[] buildContent(List<byte[]> samples, int dictionarySize, int segmentSize) {
+        int[] counts = new int[1 << HASH_BITS];
+        int[] stamps = new int[1 << HASH_BITS]; //last sample or segment that saw each substring (so it counts once)
+        Arrays.fill(stamps, -1);
+        for (int s = 0; s < samples.size(); s++) {
+            byte[] sample = samples.get(s);
+            for (int pos = 0; pos + SUBSTRING_LENGTH <= sample.length; pos++) {
+                int h = hash(sample, pos);
+                if (stamps[h] != s) {
+                    stamps[h] = s;
+                    counts[h]++;
+                }
+            }
+        }
+
+        //segments overlap by half so a repeated part is not always cut in two
+        int stamp = samples.size();
+        PriorityQueue<Segment> queue = new PriorityQueue<>(Comparator.comparingLong((Segment a) -> a.score).reversed());
+        for (int s = 0; s < samples.size(); s++) {
+            byte[] sample = samples.get(s);
+            for (int start = 0; start + SUBSTRING_LENGTH <= sample.length; start += segmentSize / 2) {
+                int end = Math.min(sample.length, start + segmentSize);
+                long score = score(sample, start, end, counts, stamps, stamp++);
+                if (score > 0) {
+                    queue.offer(new Segment(s, start, end, score));
+                }
+            }
+        }
+
+        //take the best segment, scores only go down when others are taken so a segment is scored again before it is taken
+        List<Segment> taken = new ArrayList<>();
+        int size = 0;
+        while (size < dictionarySize && !queue.isEmpty()) {
+            Segment segment = queue.poll();
+            byte[] sample = samples.get(segment.sample);
+            segment.score = score(sample, segment.start, segment.end, counts, stamps, stamp++);
+            if (segment.score == 0) {
+                continue;
+            }
+            if (!queue.isEmpty() && segment.score < queue.peek().score) {
+                queue.offer(segment);
+                continue;
+            }
+            taken.add(segment);
+            size += segment.end - segment.start;
+            for (int pos = segment.start; pos + SUBSTRING_LENGTH <= segment.end; pos++) {
+                counts[hash(sample, pos)] = 0;
+            }
+        }
+
+        //best segment last, if the last one taken does not fit all the way its start is cut off
+        byte[] content = new byte[Math.min(size, dictionarySize)];
+        int pos = content.length;
+        for (Segment segment : taken) {
+            int length = Math.min(segment.end - segment.start, pos);
+            pos -= length;
+            System.arraycopy(samples.get(segment.sample), segment.end - length, content, pos, length);
+        }
+        return content;
+    }
+
+    //sum of the counts of the different substrings in sample[start..end) that are in at least 2 samples
+    private static long score(byte[] sample, int start, int end, int[] counts, int[] stamps, int stamp) {
+        long score = 0;
+        for (int pos = start; pos + SUBSTRING_LENGTH <= end; pos++) {
+            int h = hash(sample, pos);
+            if (stamps[h] != stamp) {
+                stamps[h] = stamp;
+                if (counts[h] >= 2) {
+                    score += counts[h];
+                }
+            }
+        }
+        return score;
+    }
+
+    private static int hash(byte[] data, int pos) {
+        long v = 0;
+        for (int i = 0; i < SUBSTRING_LENGTH; i++) {
+            v = (v << 8) | (data[pos + i] & 0xFF);
+        }
+        return (int) ((v * 0x9E3779B97F4A7C15L) >>> (64 - HASH_BITS));
+    }
+
+    //Huffman code lengths for the counts, every symbol up to maxSymbol gets a code (also the ones not seen)
+    private static int[] trainedCodeLengths(int[] counts, int maxSymbol) {
+        int[] frequencies = new int[256];
+        for (int symbol = 0; symbol <= maxSymbol; symbol++) {
+            frequencies[symbol] = counts[symbol] + 1;
+        }
+        HuffmanCoding huffmanCoding = new HuffmanCoding();
+        huffmanCoding.buildHuffmanTree(frequencies, CombinedCompression.MAX_CODE_LENGTH);
+        return huffmanCoding.getCodeLengths();
+    }
+}
@@ -0,0 +1,659 @@
+package CompressionProject;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+
+//table based asymmetric numeral systems (tANS, the FSE coder of zstd) for byte streams, the other entropy coder next to
+//HuffmanCoding: a symbol costs log2(1 / probability) bits on average instead of a whole number of bits, so a stream
+//where one byte is very common (length codes of long matches, the literals of a run) gets well under 1 bit per symbol
+//
+//the counts are scaled to add up to the table size 2^tableLog and every state of the table belongs to one symbol,
+//spread over the table. the encoder goes from the last symbol to the first, each symbol writes the low bits of the
+//state and moves to a state of its own. the bits are written in the order the decoder needs them, so the decoder reads
+//forward like the Huffman decoder: one table entry gives the symbol, how many bits to read and the base of the next state
+//
+//layout of the header (writeHeader):
+//  1 byte   tableLog
+//  1 byte   number of used bytes - 1
+//  (byte, count) pairs for a few used bytes, or a 256 bit map of the used bytes and their counts
+//  (a count takes 1 byte below 128, else 2 bytes with the high bit of the first set)
+//then the coded stream: the first state (tableLog bits) and the bits of every symbol but the last, first bit highest
+public class FseCoding {
+
+    public static final int MIN_TABLE_LOG = 5;
+    public static final int MAX_TABLE_LOG = 11; //2K states, same size as the first Huffman decode table
+
+    public static final int INTERLEAVED_STREAMS = HuffmanCoding.INTERLEAVED_STREAMS;
+
+    private static final int PAIR_HEADER_LIMIT = 32; //fewer used bytes than this are written as (byte, count) pairs
+
+    //reads 8 bytes of a byte array as one big endian long
+    private static final VarHandle BIG_ENDIAN_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final int tableLog;
+    private final int[] normalizedCounts; //add up to 1 << tableLog, 0 for bytes that are not used
+    //per state: next state base << 16 | symbol << 8 | bits to read (made on first use). the bits are in the lowest 6 bits
+    //so the entry itself can be the shift count: a long shift only uses those bits, x << entry shifts by the bits to
+    //read and x >>> ~entry by 63 minus them
+    private int[] decodeTable;
+    private int maxBits; //most bits a decode table entry reads
+    private int[] encodeStates; //encoder states of each symbol, grouped by symbol (made on first use)
+    private int[] deltaBits; //per symbol, (state + deltaBits) >>> 16 is the number of bits the state writes
+    private int[] deltaState; //per symbol, where its group of encodeStates starts minus its count
+
+    //constructor from counts that already add up to 1 << tableLog
+    public FseCoding(int[] normalizedCounts, int tableLog) {
+        if (normalizedCounts.length != 256) {
+            throw new IllegalArgumentException("Counts must have 256 entries.");
+        }
+        if (tableLog < MIN_TABLE_LOG || tableLog > MAX_TABLE_LOG) {
+            throw new IllegalArgumentException("Table log must be between " + MIN_TABLE_LOG + " and " + MAX_TABLE_LOG + ".");
+        }
+        long sum = 0;
+        for (int count : normalizedCounts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Invalid FSE count: " + count);
+            }
+            sum += count;
+        }
+        if (sum != 1 << tableLog) {
+            throw new IllegalArgumentException("FSE counts do not add up to the table size.");
+        }
+        for (int count : normalizedCounts) {
+            if (count == 1 << tableLog) {
+                throw new IllegalArgumentException("An FSE table needs states for at least 2 bytes.");
+            }
+        }
+        this.tableLog = tableLog;
+        this.normalizedCounts = normalizedCounts.clone();
+    }
+
+    //a coder for a stream with this histogram (index is the byte value, at least one byte must be used)
+    public static FseCoding fromCounts(int[] counts) {
+        long total = 0;
+        int used = 0;
+        for (int count : counts) {
+            total += count;
+            if (count > 0) {
+                used++;
+            }
+        }
+        if (used == 0) {
+            throw new IllegalArgumentException("There are no bytes to code.");
+        }
+        if (used == 1) {
+            //a byte with every state would cost no bits at all, so a second byte gets one state and the stream costs
+            //about 1 bit per table size symbols (this keeps maxSymbols a bound for every stream)
+            counts = counts.clone();
+            counts[counts[0] == 0 ? 0 : 1] = 1;
+            total++;
+            used++;
+        }
+        //about 4 symbols per state, but enough states for every used byte and a bit of precision
+        int tableLog = Math.min(MAX_TABLE_LOG, highBit(total - 1) - 2);
+        tableLog = Math.max(tableLog, Math.max(MIN_TABLE_LOG, highBit(used - 1) + 2));
+        tableLog = Math.min(tableLog, MAX_TABLE_LOG);
+        return new FseCoding(normalize(counts, total, tableLog), tableLog);
+    }
+
+    //scales the counts to add up to 1 << tableLog, every used byte keeps a count of at least 1
+    static int[] normalize(int[] counts, long total, int tableLog) {
+        int tableSize = 1 << tableLog;
+        int[] normalized = new int[256];
+        int sum = 0;
+        int largest = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (counts[symbol] > 0) {
+                normalized[symbol] = (int) Math.max(1, (counts[symbol] * (long) tableSize + total / 2) / total);
+                sum += normalized[symbol];
+                if (counts[symbol] > counts[largest]) {
+                    largest = symbol;
+                }
+            }
+        }
+        if (sum < tableSize) {
+            normalized[largest] += tableSize - sum;
+        }
+        //too many states handed out (rounding up and the minimum of 1): take them back one at a time where it costs least
+        while (sum > tableSize) {
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (normalized[symbol] > 1) {
+                    double cost = counts[symbol] * Math.log((double) normalized[symbol] / (normalized[symbol] - 1));
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = symbol;
+                    }
+                }
+            }
+            normalized[best]--;
+            sum--;
+        }
+        return normalized;
+    }
+
+    //most symbols that can be coded in this many bits (states included): no byte has every state, so a symbol that
+    //reads no bits moves its stream to a higher state and within 2^tableLog symbols one has to read a bit
+    public static long maxSymbols(long bits) {
+        return (bits + 2 * INTERLEAVED_STREAMS) << MAX_TABLE_LOG;
+    }
+
+    //bits the coded stream of a histogram takes, from the scaled probabilities (the real size differs by a few bits)
+    public long getEstimatedBitLength(int[] counts) {
+        double bits = tableLog;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (counts[symbol] > 0) {
+                if (normalizedCounts[symbol] == 0) {
+                    return Long.MAX_VALUE; //the byte has no states
+                }
+                bits += counts[symbol] * (tableLog - Math.log(normalizedCounts[symbol]) / Math.log(2));
+            }
+        }
+        return (long) Math.ceil(bits);
+    }
+
+    public int getTableLog() {
+        return tableLog;
+    }
+
+    //returns the scaled count of every byte value (index is b & 0xFF)
+    public int[] getNormalizedCounts() {
+        return normalizedCounts.clone();
+    }
+
+    //size in bytes of the header written by writeHeader
+    public int getHeaderSize() {
+        int used = 0;
+        int countBytes = 0;
+        for (int count : normalizedCounts) {
+            if (count > 0) {
+                used++;
+                countBytes += count < 128 ? 1 : 2;
+            }
+        }
+        return 2 + countBytes + (used < PAIR_HEADER_LIMIT ? used : 32);
+    }
+
+    //writes the table log and the scaled counts so a decoder can rebuild the same tables
+    public void writeHeader(ByteBuffer out) {
+        int used = 0;
+        for (int count : normalizedCounts) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        out.put((byte) tableLog);
+        out.put((byte) (used - 1));
+        if (used < PAIR_HEADER_LIMIT) {
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (normalizedCounts[symbol] > 0) {
+                    out.put((byte) symbol);
+                    putCount(out, normalizedCounts[symbol]);
+                }
+            }
+        } else {
+            byte[] bitMap = new byte[32];
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (normalizedCounts[symbol] > 0) {
+                    bitMap[symbol >> 3] |= 1 << (symbol & 7);
+                }
+            }
+            out.put(bitMap);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (normalizedCounts[symbol] > 0) {
+                    putCount(out, normalizedCounts[symbol]);
+                }
+            }
+        }
+    }
+
+    //reads a header written by writeHeader and returns a coder with the same tables
+    public static FseCoding readHeader(ByteBuffer in) {
+        int tableLog = in.get() & 0xFF;
+        int used = (in.get() & 0xFF) + 1;
+        int[] counts = new int[256];
+        if (used < PAIR_HEADER_LIMIT) {
+            for (int i = 0; i < used; i++) {
+                int symbol = in.get() & 0xFF;
+                counts[symbol] = getCount(in);
+            }
+        } else {
+            byte[] bitMap = new byte[32];
+            in.get(bitMap);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if ((bitMap[symbol >> 3] & (1 << (symbol & 7))) != 0) {
+                    counts[symbol] = getCount(in);
+                }
+            }
+        }
+        return new FseCoding(counts, tableLog);
+    }
+
+    //counts are at most 2^MAX_TABLE_LOG: 7 bits in one byte, or 15 bits in two with the high bit of the first set
+    private static void putCount(ByteBuffer out, int count) {
+        if (count < 128) {
+            out.put((byte) count);
+        } else {
+            out.put((byte) (0x80 | (count >>> 8)));
+            out.put((byte) count);
+        }
+    }
+
+    private static int getCount(ByteBuffer in) {
+        int b = in.get() & 0xFF;
+        return b < 128 ? b : ((b & 0x7F) << 8) | (in.get() & 0xFF);
+    }
+
+    //the symbol of every state: each symbol gets as many states as its count, spread with an odd step so the states
+    //of one symbol are far apart
+    private int[] spreadSymbols() {
+        int tableSize = 1 << tableLog;
+        int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+        int[] spread = new int[tableSize];
+        int position = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            for (int i = 0; i < normalizedCounts[symbol]; i++) {
+                spread[position] = symbol;
+                position = (position + step) & (tableSize - 1);
+            }
+        }
+        return spread;
+    }
+
+    private void buildEncodeTables() {
+        int tableSize = 1 << tableLog;
+        int[] spread = spreadSymbols();
+        int[] start = new int[256];
+        int cumulative = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            start[symbol] = cumulative;
+            cumulative += normalizedCounts[symbol];
+        }
+        int[] next = start.clone();
+        int[] states = new int[tableSize];
+        for (int u = 0; u < tableSize; u++) {
+            states[next[spread[u]]++] = tableSize + u;
+        }
+        int[] bitsDelta = new int[256];
+        int[] stateDelta = new int[256];
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int count = normalizedCounts[symbol];
+            if (count == 0) {
+                continue;
+            }
+            if (count == 1) {
+                bitsDelta[symbol] = (tableLog << 16) - tableSize;
+                stateDelta[symbol] = start[symbol] - 1;
+            } else {
+                int maxBitsOut = tableLog - highBit(count - 1);
+                int minStatePlus = count << maxBitsOut;
+                bitsDelta[symbol] = (maxBitsOut << 16) - minStatePlus;
+                stateDelta[symbol] = start[symbol] - count;
+            }
+        }
+        encodeStates = states;
+        deltaBits = bitsDelta;
+        deltaState = stateDelta;
+    }
+
+    private void buildDecodeTable() {
+        int tableSize = 1 << tableLog;
+        int[] spread = spreadSymbols();
+        int[] next = normalizedCounts.clone();
+        int[] table = new int[tableSize];
+        for (int u = 0; u < tableSize; u++) {
+            int symbol = spread[u];
+            int x = next[symbol]++;
+            int bits = tableLog - highBit(x);
+            table[u] = (((x << bits) - tableSize) << 16) | (symbol << 8) | bits;
+            maxBits = Math.max(maxBits, bits);
+        }
+        decodeTable = table;
+    }
+
+    //encodes input[offset..offset+length) (every byte must have a count) and returns the coded bytes
+    public byte[] encode(byte[] input, int offset, int length) {
+        return encode(input, offset, offset + length, 1);
+    }
+
+    //encodes input[offset..offset+length) as 4 streams like HuffmanCoding.encodeInterleaved (symbol i goes to stream
+    //i % 4, each with its own state, after a jump table with the byte size of the first 3 streams), so the decoder
+    //can follow 4 states at once
+    public byte[] encodeInterleaved(byte[] input, int offset, int length) {
+        byte[][] streams = new byte[INTERLEAVED_STREAMS][];
+        int size = 0;
+        for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+            streams[stream] = encode(input, offset + stream, offset + length, INTERLEAVED_STREAMS);
+            size += streams[stream].length + 5;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        for (int stream = 0; stream < INTERLEAVED_STREAMS - 1; stream++) {
+            Varint.put(out, streams[stream].length);
+        }
+        for (byte[] stream : streams) {
+            out.put(stream);
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    //encodes every stride-th byte of input[first..end) and returns the coded bytes
+    private byte[] encode(byte[] input, int first, int end, int stride) {
+        if (encodeStates == null) {
+            buildEncodeTables();
+        }
+        int length = first < end ? (end - first + stride - 1) / stride : 0;
+        if (length == 0) {
+            return new byte[0];
+        }
+        int[] states = encodeStates;
+        int[] bitsDelta = deltaBits;
+        int[] stateDelta = deltaState;
+
+        //from the last symbol to the first, keeping what each one writes (value << 4 | bit count) for the forward writer
+        int[] written = new int[length];
+        int state = 1 << tableLog;
+        for (int i = length - 1; i >= 0; i--) {
+            int symbol = input[first + i * stride] & 0xFF;
+            if (normalizedCounts[symbol] == 0) {
+                throw new IllegalArgumentException("Byte " + symbol + " has no FSE count.");
+            }
+            int bits = (state + bitsDelta[symbol]) >>> 16;
+            written[i] = ((state & ((1 << bits) - 1)) << 4) | bits;
+            state = states[(state >>> bits) + stateDelta[symbol]];
+        }
+
+        long totalBits = tableLog;
+        for (int i = 0; i < length - 1; i++) {
+            totalBits += written[i] & 0xF;
+        }
+        byte[] out = new byte[(int) ((totalBits + 7) / 8)];
+        long accumulator = state - (1 << tableLog); //lowest bitCount bits are waiting to be written
+        int bitCount = tableLog;
+        int o = 0;
+        //the last symbol writes nothing, the decoder does not need the state before it
+        for (int i = 0; i < length - 1; i++) {
+            int bits = written[i] & 0xF;
+            accumulator = (accumulator << bits) | (written[i] >>> 4);
+            bitCount += bits;
+            if (bitCount >= 32) {
+                bitCount -= 32;
+                int word = (int) (accumulator >>> bitCount);
+                out[o] = (byte) (word >>> 24);
+                out[o + 1] = (byte) (word >>> 16);
+                out[o + 2] = (byte) (word >>> 8);
+                out[o + 3] = (byte) word;
+                o += 4;
+            }
+        }
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            out[o++] = (byte) (accumulator >>> bitCount);
+        }
+        if (bitCount > 0) {
+            out[o++] = (byte) (accumulator << (8 - bitCount));
+        }
+        return out;
+    }
+
+    //decodes count bytes from the buffer into out[offset..], the buffer moves past the bytes that were read
+    public void decode(ByteBuffer in, byte[] out, int offset, int count) {
+        int used;
+        if (in.hasArray()) {
+            used = decode(in.array(), in.arrayOffset() + in.position(), in.remaining(), out, offset, count);
+        } else {
+            byte[] bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            used = decode(bytes, 0, bytes.length, out, offset, count);
+        }
+        in.position(in.position() + used);
+    }
+
+    //decodes count bytes from in[inOffset..inOffset+inLength) into out[outOffset..] and returns the bytes of input used
+    public int decode(byte[] in, int inOffset, int inLength, byte[] out, int outOffset, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        if (decodeTable == null) {
+            buildDecodeTable();
+        }
+        int[] table = decodeTable;
+        int inPos = inOffset;
+        int inEnd = inOffset + inLength;
+        long bitBuffer = 0; //next bits are at the top of the long
+        int bitCount = 0;
+        int padding = 0; //zero bytes read after the end of the input
+        int perRefill = 56 / Math.max(1, maxBits); //symbols each reader surely holds after a refill
+
+        int state = -1;
+        int o = outOffset;
+        int outEnd = outOffset + count - 1; //the last symbol reads no bits
+        while (state < 0 || o < outEnd) {
+            if (bitCount <= 56 && inEnd - inPos >= 8) {
+                //branch free refill like HuffmanDecoder (a full buffer is skipped, symbols of 0 bits can leave 64 bits)
+                bitBuffer |= (long) BIG_ENDIAN_LONG.get(in, inPos) >>> bitCount;
+                inPos += (63 - bitCount) >>> 3;
+                bitCount |= 56;
+            }
+            while (bitCount <= 56) {
+                int b;
+                if (inPos < inEnd) {
+                    b = in[inPos++] & 0xFF;
+                } else {
+                    b = 0;
+                    padding++;
+                }
+                bitBuffer |= (long) b << (56 - bitCount);
+                bitCount += 8;
+            }
+            if (state < 0) {
+                state = (int) (bitBuffer >>> (64 - tableLog));
+                bitBuffer <<= tableLog;
+                bitCount -= tableLog;
+                continue;
+            }
+
+            int end = Math.min(outEnd, o + perRefill);
+            while (o < end) {
+                int entry = table[state];
+                out[o++] = (byte) (entry >>> 8);
+                //shifting by 63 - bits after 1 keeps 0 bits at 0 (a long shift by 64 would not move it)
+                state = (entry >>> 16) + (int) ((bitBuffer >>> 1) >>> ~entry);
+                bitBuffer <<= entry;
+                bitCount -= entry & 0x3F;
+            }
+        }
+        out[o] = (byte) (table[state] >>> 8);
+
+        long bitsUsed = (long) (inPos - inOffset + padding) * 8 - bitCount;
+        if (bitsUsed > (long) inLength * 8) {
+            throw new IllegalArgumentException("FSE data ended before all symbols were decoded.");
+        }
+        return (int) ((bitsUsed + 7) / 8);
+    }
+
+    //decodes count bytes written by encodeInterleaved from the buffer into out[offset..], the buffer moves past them
+    public void decodeInterleaved(ByteBuffer in, byte[] out, int offset, int count) {
+        int[] sizes = new int[INTERLEAVED_STREAMS - 1];
+        for (int stream = 0; stream < sizes.length; stream++) {
+            sizes[stream] = Varint.get(in);
+        }
+        int used;
+        if (in.hasArray()) {
+            used = decodeInterleaved(in.array(), in.arrayOffset() + in.position(), in.remaining(), sizes, out, offset, count);
+        } else {
+            byte[] bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            used = decodeInterleaved(bytes, 0, bytes.length, sizes, out, offset, count);
+        }
+        in.position(in.position() + used);
+    }
+
+    //decodes count symbols from the 4 streams in in[inOffset..inOffset+inLength) (sizes are the byte sizes of the first
+    //3) and returns the bytes used. the 4 states are independent, so their table lookups do not wait on each other
+    public int decodeInterleaved(byte[] in, int inOffset, int inLength, int[] sizes, byte[] out, int outOffset, int count) {
+        int streams = INTERLEAVED_STREAMS;
+        if (sizes.length != streams - 1) {
+            throw new IllegalArgumentException("Interleaved FSE data must have " + streams + " streams.");
+        }
+        if (decodeTable == null) {
+            buildDecodeTable();
+        }
+        int[] table = decodeTable;
+        Reader[] readers = new Reader[streams];
+        long pos = inOffset;
+        for (int stream = 0; stream < streams; stream++) {
+            long end = stream < streams - 1 ? pos + sizes[stream] : inOffset + inLength;
+            if (end > inOffset + inLength) {
+                throw new IllegalArgumentException("FSE data ended before all symbols were decoded.");
+            }
+            readers[stream] = new Reader((int) pos, (int) end);
+            pos = end;
+        }
+        //every stream that has symbols starts with its state
+        int[] states = new int[streams];
+        for (int stream = 0; stream < Math.min(streams, count); stream++) {
+            Reader reader = readers[stream];
+            reader.refill(in);
+            states[stream] = (int) (reader.buffer >>> (64 - tableLog));
+            reader.buffer <<= tableLog;
+            reader.bits -= tableLog;
+        }
+
+        int o = outOffset;
+        int outEnd = outOffset + count;
+        int perRefill = 56 / Math.max(1, maxBits); //symbols each reader surely holds after a refill
+        if (count >= streams * (perRefill + 1)) {
+            Reader r0 = readers[0], r1 = readers[1], r2 = readers[2], r3 = readers[3];
+            long buffer0 = r0.buffer, buffer1 = r1.buffer, buffer2 = r2.buffer, buffer3 = r3.buffer; //next bits at the top
+            int bits0 = r0.bits, bits1 = r1.bits, bits2 = r2.bits, bits3 = r3.bits;
+            int pos0 = r0.pos, pos1 = r1.pos, pos2 = r2.pos, pos3 = r3.pos;
+            int state0 = states[0], state1 = states[1], state2 = states[2], state3 = states[3];
+            //main loop: branch free refill of all 4 readers (they hold at most 63 bits), then perRefill symbols from each
+            //in turn. the last symbol of each stream (it reads no bits) is left to the loop below
+            int fastEnd = outEnd - streams * (perRefill + 1);
+            while (o <= fastEnd && r0.end - pos0 >= 8 && r1.end - pos1 >= 8 && r2.end - pos2 >= 8 && r3.end - pos3 >= 8) {
+                buffer0 |= (long) BIG_ENDIAN_LONG.get(in, pos0) >>> bits0;
+                pos0 += (63 - bits0) >>> 3;
+                bits0 |= 56;
+                buffer1 |= (long) BIG_ENDIAN_LONG.get(in, pos1) >>> bits1;
+                pos1 += (63 - bits1) >>> 3;
+                bits1 |= 56;
+                buffer2 |= (long) BIG_ENDIAN_LONG.get(in, pos2) >>> bits2;
+                pos2 += (63 - bits2) >>> 3;
+                bits2 |= 56;
+                buffer3 |= (long) BIG_ENDIAN_LONG.get(in, pos3) >>> bits3;
+                pos3 += (63 - bits3) >>> 3;
+                bits3 |= 56;
+                for (int i = 0; i < perRefill; i++) {
+                    int entry0 = table[state0];
+                    int entry1 = table[state1];
+                    int entry2 = table[state2];
+                    int entry3 = table[state3];
+                    out[o] = (byte) (entry0 >>> 8);
+                    out[o + 1] = (byte) (entry1 >>> 8);
+                    out[o + 2] = (byte) (entry2 >>> 8);
+                    out[o + 3] = (byte) (entry3 >>> 8);
+                    o += 4;
+                    state0 = (entry0 >>> 16) + (int) ((buffer0 >>> 1) >>> ~entry0);
+                    state1 = (entry1 >>> 16) + (int) ((buffer1 >>> 1) >>> ~entry1);
+                    state2 = (entry2 >>> 16) + (int) ((buffer2 >>> 1) >>> ~entry2);
+                    state3 = (entry3 >>> 16) + (int) ((buffer3 >>> 1) >>> ~entry3);
+                    buffer0 <<= entry0;
+                    bits0 -= entry0 & 0x3F;
+                    buffer1 <<= entry1;
+                    bits1 -= entry1 & 0x3F;
+                    buffer2 <<= entry2;
+                    bits2 -= entry2 & 0x3F;
+                    buffer3 <<= entry3;
+                    bits3 -= entry3 & 0x3F;
+                }
+            }
+            r0.buffer = buffer0;
+            r1.buffer = buffer1;
+            r2.buffer = buffer2;
+            r3.buffer = buffer3;
+            r0.bits = bits0;
+            r1.bits = bits1;
+            r2.bits = bits2;
+            r3.bits = bits3;
+            r0.pos = pos0;
+            r1.pos = pos1;
+            r2.pos = pos2;
+            r3.pos = pos3;
+            states[0] = state0;
+            states[1] = state1;
+            states[2] = state2;
+            states[3] = state3;
+        }
+
+        //the rest one at a time, the last symbol of a stream reads no bits
+        for (; o < outEnd; o++) {
+            int stream = (o - outOffset) & 3;
+            int entry = table[states[stream]];
+            out[o] = (byte) (entry >>> 8);
+            if (o + streams < outEnd) {
+                Reader reader = readers[stream];
+                reader.refill(in);
+                int bits = entry & 0x3F;
+                states[stream] = (entry >>> 16) + (int) ((reader.buffer >>> 1) >>> (63 - bits));
+                reader.buffer <<= bits;
+                reader.bits -= bits;
+            }
+        }
+
+        int lastUsed = 0;
+        for (Reader reader : readers) {
+            lastUsed = reader.bytesUsed();
+        }
+        return readers[streams - 1].start - inOffset + lastUsed;
+    }
+
+    //bit reader over one of the interleaved streams, pads with zero bytes after its end
+    private static final class Reader {
+        final int start;
+        final int end;
+        int pos;
+        long buffer; //next bits are at the top of the long
+        int bits;
+        int padding;
+
+        Reader(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.pos = start;
+        }
+
+        void refill(byte[] in) {
+            while (bits <= 56) {
+                int b;
+                if (pos < end) {
+                    b = in[pos++] & 0xFF;
+                } else {
+                    b = 0;
+                    padding++;
+                }
+                buffer |= (long) b << (56 - bits);
+                bits += 8;
+            }
+        }
+
+        //bytes of the stream the symbols used, checks that no symbol needed bits after its end
+        int bytesUsed() {
+            long bitsUsed = (long) (pos - start + padding) * 8 - bits;
+            if (bitsUsed > (long) (end - start) * 8) {
+                throw new IllegalArgumentException("FSE data ended before all symbols were decoded.");
+            }
+            return (int) ((bitsUsed + 7) / 8);
+        }
+    }
+
+    //position of the highest set bit (value must be positive)
+    private static int highBit(long value) {
+        return 63 - Long.numberOfLeadingZeros(value);
+    }
+}
@@ -0,0 +1,188 @@
+package CompressionProject;
+
+import java.util.Arrays;
+
+
+//hash chain match finder (head/prev tables over 3 byte prefixes) like the one used by deflate
+public class HashChainMatchFinder implements MatchFinder {
+
+    public static final int MIN_MATCH = 3; //the hash covers 3 bytes so shorter matches are not found
+    public static final int DEFAULT_MAX_CHAIN_DEPTH = 64; //how many earlier positions are checked per search
+
+    private static final int HASH_BITS = 15;
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+
+    private final int windowSize;
+    private final int maxMatchLength;
+    private final int maxChainDepth;
+    private final int niceLength; //a match this long is good enough, the search stops there
+
+    private final int[] head = new int[HASH_SIZE]; //last position seen for each hash value
+    private final int[] prev; //previous position with the same hash (indexed by pos & windowMask)
+    private final int windowMask;
+
+    private byte[] data;
+    private int end;
+    private int matchDistance;
+
+    //constructor for the match finder (window size and max match length are the ones of the LZ77 class that uses it)
+    public HashChainMatchFinder(int windowSize, int maxMatchLength, int maxChainDepth) {
+        this(windowSize, maxMatchLength, maxChainDepth, maxMatchLength);
+    }
+
+    //constructor with a "good enough" match length, searches stop at the first match that long (faster, a little worse)
+    public HashChainMatchFinder(int windowSize, int maxMatchLength, int maxChainDepth, int niceLength) {
+        if (windowSize <= 0 || maxMatchLength <= 0 || maxChainDepth <= 0 || niceLength <= 0) {
+            throw new IllegalArgumentException("Window size, match lengths and chain depth must be positive.");
+        }
+        this.windowSize = windowSize;
+        this.maxMatchLength = maxMatchLength;
+        this.maxChainDepth = maxChainDepth;
+        this.niceLength = Math.min(niceLength, maxMatchLength);
+
+        //prev is a ring buffer the size of the window (rounded up to a power of 2 to use a mask instead of %)
+        int prevSize = Integer.highestOneBit(Math.max(windowSize, 2) - 1) << 1;
+        this.prev = new int[prevSize];
+        this.windowMask = prevSize - 1;
+    }
+
+    //constructor that starts from the tables of a primed finder (see CompressionDictionary), data must begin with the
+    //bytes the primed finder has seen so far, copying the tables is much cheaper than adding those positions again
+    public HashChainMatchFinder(HashChainMatchFinder primed, byte[] data, int end) {
+        this.windowSize = primed.windowSize;
+        this.maxMatchLength = primed.maxMatchLength;
+        this.maxChainDepth = primed.maxChainDepth;
+        this.niceLength = primed.niceLength;
+        this.prev = new int[primed.prev.length];
+        this.windowMask = primed.windowMask;
+        //only the entries of the positions the primed finder has seen are ever followed
+        System.arraycopy(primed.prev, 0, prev, 0, Math.min(prev.length, primed.end));
+        System.arraycopy(primed.head, 0, head, 0, HASH_SIZE);
+        this.data = data;
+        this.end = end;
+    }
+
+    //true if a finder made with these settings would find the same matches
+    public boolean hasSettings(int windowSize, int maxMatchLength, int maxChainDepth, int niceLength) {
+        return this.windowSize == windowSize && this.maxMatchLength == maxMatchLength && this.maxChainDepth == maxChainDepth
+                && this.niceLength == Math.min(niceLength, maxMatchLength);
+    }
+
+    @Override
+    public void reset(byte[] data, int end) {
+        this.data = data;
+        this.end = end;
+        this.matchDistance = 0;
+        Arrays.fill(head, -1);
+    }
+
+    //hash of the 3 bytes at pos
+    private int hash(int pos) {
+        int h = ((data[pos] & 0xFF) << 16) ^ ((data[pos + 1] & 0xFF) << 8) ^ (data[pos + 2] & 0xFF);
+        return (h * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    @Override
+    public int findLongestMatch(int pos) {
+        matchDistance = 0;
+        if (pos + MIN_MATCH > end) {
+            return 0; //not enough bytes left to hash
+        }
+
+        int h = hash(pos);
+        int candidate = head[h];
+        //link pos into the chain before searching
+        prev[pos & windowMask] = candidate;
+        head[h] = pos;
+
+        int limit = Math.min(maxMatchLength, end - pos);
+        int goodEnough = Math.min(niceLength, limit);
+        int minPos = pos - windowSize;
+        int bestLength = 0;
+
+        for (int depth = 0; depth < maxChainDepth && candidate >= 0 && candidate >= minPos; depth++) {
+            //quick check on the byte that would make this candidate better than the best one so far
+            if (data[candidate + bestLength] == data[pos + bestLength] && data[candidate] == data[pos]) {
+                int k = 1;
+                while (k < limit && data[candidate + k] == data[pos + k]) {
+                    k++;
+                }
+                if (k > bestLength) {
+                    bestLength = k;
+                    matchDistance = pos - candidate;
+                    if (k >= goodEnough) {
+                        break; //can't do better, or good enough
+                    }
+                }
+            }
+            candidate = prev[candidate & windowMask];
+        }
+
+        if (bestLength < MIN_MATCH) {
+            matchDistance = 0;
+            return 0;
+        }
+        return bestLength;
+    }
+
+    @Override
+    public int findMatches(int pos, int[] lengths, int[] distances) {
+        matchDistance = 0;
+        if (pos + MIN_MATCH > end) {
+            return 0;
+        }
+
+        int h = hash(pos);
+        int candidate = head[h];
+        prev[pos & windowMask] = candidate;
+        head[h] = pos;
+
+        int limit = Math.min(maxMatchLength, end - pos);
+        int goodEnough = Math.min(niceLength, limit);
+        int minPos = pos - windowSize;
+        int bestLength = MIN_MATCH - 1; //only matches of at least MIN_MATCH bytes are reported
+        int count = 0;
+
+        for (int depth = 0; depth < maxChainDepth && candidate >= 0 && candidate >= minPos; depth++) {
+            if (data[candidate + bestLength] == data[pos + bestLength] && data[candidate] == data[pos]) {
+                int k = 1;
+                while (k < limit && data[candidate + k] == data[pos + k]) {
+                    k++;
+                }
+                if (k > bestLength) {
+                    bestLength = k;
+                    if (count == lengths.length) {
+                        count--; //arrays are full, keep the longest match in the last entry
+                    }
+                    lengths[count] = k;
+                    distances[count] = pos - candidate;
+                    count++;
+                    if (k >= goodEnough) {
+                        break;
+                    }
+                }
+            }
+            candidate = prev[candidate & windowMask];
+        }
+
+        if (count > 0) {
+            matchDistance = distances[count - 1];
+        }
+        return count;
+    }
+
+    @Override
+    public int getMatchDistance() {
+        return matchDistance;
+    }
+
+    @Override
+    public void skip(int pos) {
+        if (pos + MIN_MATCH > end) {
+            return;
+        }
+        int h = hash(pos);
+        prev[pos & windowMask] = head[h];
+        head[h] = pos;
+    }
+}
@@ -3,88 +3,518 @@ package CompressionProject;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.io.FileOutputStream;
 
-//node class used in Huffmantreee in huffmancoding.
-class HuffmanNode {
-    byte data; //this stores the byte val
-    int frequency; //frequency of occurrence of byte
-    HuffmanNode left; //left child in the huffman tree
-    HuffmanNode right; // right child in the Huffman tree
-
-    // constructor for huffmanNode class.
-    public HuffmanNode(byte data, int frequency) {
-        this.data = data;
-        this.frequency = frequency;
-    }
-}
-
-
 //huffman code class for compressing and decompressing data of bytes.
 public class HuffmanCoding {
 
     private Map<Byte, String> huffmanCodeMap = new HashMap<>(); // map to store the huffman code for each byte
     private Map<String, Byte> reverseHuffmanCodeMap = new HashMap<>(); // map to store the reverss for decoding
+    private int[] codeLengths = new int[256]; // code length of each byte (0 if the byte is not in the tree)
+    private long[] codes = new long[256]; // canonical code of each byte, lowest codeLengths[b] bits are used
+    private HuffmanDecoder tableDecoder; // table decoder for packed bits (made on first use)
+
+    private static final int PAIR_HEADER_LIMIT = 32; // fewer used bytes than this are written as (byte, length) pairs
+
+    public static final int INTERLEAVED_STREAMS = 4; // streams of encodeInterleaved
 
    
    //Builds the huffman tree using the frequency map in code.
     public void buildHuffmanTree(Map<Byte, Integer> frequencyMap) {
-        PriorityQueue<HuffmanNode> priorityQueue = new PriorityQueue<>(
-                Comparator.comparingInt(a -> a.frequency) // Comparator to order nodes by frequency
-        );
+        buildHuffmanTree(toCounts(frequencyMap));
+    }
+
+    //builds the huffman tree from a histogram (index is the byte value, 0 means the byte is not used), like the one
+    //of ByteStatistics.histogram, so no map has to be made. only the code lengths of the tree are made (in plain
+    //arrays, see treeCodeLengths) and the codes are the canonical ones for them
+    public void buildHuffmanTree(int[] counts) {
+        codeLengths = treeCodeLengths(counts);
+        tableDecoder = null;
+        assignCanonicalCodes();
+    }
+
+    //builds the huffman codes like buildHuffmanTree, but no code is longer than maxCodeLength bits
+    //(if the tree is deeper the lengths are made again with package-merge, which gives the best code within the limit)
+    public void buildHuffmanTree(Map<Byte, Integer> frequencyMap, int maxCodeLength) {
+        buildHuffmanTree(toCounts(frequencyMap), maxCodeLength);
+    }
 
-        //add all nodes to the priority queue Structure
+    //buildHuffmanTree(int[]) with no code longer than maxCodeLength bits
+    public void buildHuffmanTree(int[] counts, int maxCodeLength) {
+        int used = ByteStatistics.distinct(counts);
+        int minLength = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(0, used - 1))); //ceil(log2(used))
+        if (maxCodeLength < minLength || maxCodeLength > HuffmanDecoder.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length " + maxCodeLength + " must be between " + minLength
+                    + " and " + HuffmanDecoder.MAX_CODE_LENGTH + " for " + used + " bytes.");
+        }
+        int[] lengths = treeCodeLengths(counts);
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        codeLengths = maxLength > maxCodeLength ? limitedCodeLengths(counts, maxCodeLength) : lengths;
+        tableDecoder = null;
+        assignCanonicalCodes();
+    }
+
+    //the frequency map as a histogram
+    private static int[] toCounts(Map<Byte, Integer> frequencyMap) {
+        int[] counts = new int[256];
         for (Map.Entry<Byte, Integer> entry : frequencyMap.entrySet()) {
-            priorityQueue.offer(new HuffmanNode(entry.getKey(), entry.getValue()));
+            counts[entry.getKey() & 0xFF] = entry.getValue();
+        }
+        return counts;
+    }
+
+    //code lengths of a huffman tree for the counts with no node objects: the used bytes are sorted by count and the
+    //in-place method of Moffat and Katajainen works on one array of their weights (phase 1 merges the two smallest of
+    //the leaves left and the internal nodes made so far, which come out in order so no priority queue is needed, and
+    //keeps the parent of each internal node, phase 2 turns parents into depths and phase 3 depths into leaf lengths)
+    static int[] treeCodeLengths(int[] counts) {
+        int[] lengths = new int[256];
+        int n = 0;
+        int[] symbols = new int[256];
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (counts[symbol] > 0) {
+                symbols[n++] = symbol;
+            }
+        }
+        if (n == 0) {
+            return lengths;
+        }
+        if (n == 1) {
+            lengths[symbols[0]] = 1; //a tree with 1 byte still needs 1 bit
+            return lengths;
+        }
+        int[] sorted = sortByFrequency(symbols, n, counts);
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = counts[sorted[i]];
         }
 
-        //build the huffman tree
-        while (priorityQueue.size() > 1) {
-            HuffmanNode left = priorityQueue.poll(); //remove node with lowest frequency
-            HuffmanNode right = priorityQueue.poll(); //remove node with next lowest frequency
+        //phase 1: a[next] gets the weight of internal node next, a[root] the parent of an internal node already used
+        a[0] += a[1];
+        int root = 0;
+        int leaf = 2;
+        for (int next = 1; next < n - 1; next++) {
+            if (leaf >= n || a[root] < a[leaf]) {
+                a[next] = a[root];
+                a[root++] = next;
+            } else {
+                a[next] = a[leaf++];
+            }
+            if (leaf >= n || (root < next && a[root] < a[leaf])) {
+                a[next] += a[root];
+                a[root++] = next;
+            } else {
+                a[next] += a[leaf++];
+            }
+        }
 
-            //make a new internal node with these two nodes as childrens 
-            HuffmanNode combined = new HuffmanNode((byte) 0, left.frequency + right.frequency);
-            combined.left = left;
-            combined.right = right;
+        //phase 2: depth of every internal node (the root is a[n - 2])
+        a[n - 2] = 0;
+        for (int next = n - 3; next >= 0; next--) {
+            a[next] = a[(int) a[next]] + 1;
+        }
 
-            //add the new node back into the priority queue structure
-            priorityQueue.offer(combined);
+        //phase 3: the free places at each depth that are not taken by internal nodes are leaves
+        int available = 1;
+        int depth = 0;
+        root = n - 2;
+        int next = n - 1;
+        while (available > 0) {
+            int used = 0;
+            while (root >= 0 && a[root] == depth) {
+                used++;
+                root--;
+            }
+            while (available > used) {
+                a[next--] = depth;
+                available--;
+            }
+            available = 2 * used;
+            depth++;
         }
 
-        //the remaining node is the root of the huffman tree struct
-        HuffmanNode root = priorityQueue.poll();
-        buildCodeMap(root, "");
+        //a[i] is now the length of the i-th least frequent byte
+        for (int i = 0; i < n; i++) {
+            lengths[sorted[i]] = (int) a[i];
+        }
+        return lengths;
     }
 
-    
-    //recursively makes the hffman code map from the tree.
-    private void buildCodeMap(HuffmanNode node, String code) {
-        if (node == null) {
+    //package-merge: the code lengths with the smallest encoded size where no code is longer than maxLength
+    //(each level pairs up the cheapest items of the level below into packages and merges them with the bytes,
+    //then a byte's code length is how often it is in the first 2n-2 items of the top level and the packages under them)
+    static int[] limitedCodeLengths(int[] frequencies, int maxLength) {
+        int[] lengths = new int[256];
+        int n = 0;
+        int[] symbols = new int[256];
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (frequencies[symbol] > 0) {
+                symbols[n++] = symbol;
+            }
+        }
+        if (n == 0) {
+            return lengths;
+        }
+        if (n == 1) {
+            lengths[symbols[0]] = 1;
+            return lengths;
+        }
+
+        //the used bytes from least to most frequent
+        long[] leafWeights = new long[n];
+        int[] sorted = sortByFrequency(symbols, n, frequencies);
+        for (int i = 0; i < n; i++) {
+            leafWeights[i] = frequencies[sorted[i]];
+        }
+
+        //items of every level: weight, and the leaf index or -1 for a package
+        long[][] weights = new long[maxLength][];
+        int[][] leaves = new int[maxLength][];
+        weights[0] = leafWeights;
+        leaves[0] = new int[n];
+        for (int i = 0; i < n; i++) {
+            leaves[0][i] = i;
+        }
+        for (int level = 1; level < maxLength; level++) {
+            long[] below = weights[level - 1];
+            int packages = below.length / 2;
+            long[] levelWeights = new long[n + packages];
+            int[] levelLeaves = new int[n + packages];
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < levelWeights.length; i++) {
+                long packageWeight = pack < packages ? below[2 * pack] + below[2 * pack + 1] : Long.MAX_VALUE;
+                if (leaf < n && leafWeights[leaf] <= packageWeight) {
+                    levelWeights[i] = leafWeights[leaf];
+                    levelLeaves[i] = leaf++;
+                } else {
+                    levelWeights[i] = packageWeight;
+                    levelLeaves[i] = -1;
+                    pack++;
+                }
+            }
+            weights[level] = levelWeights;
+            leaves[level] = levelLeaves;
+        }
+
+        //walk down from the top level, every package taken takes 2 items of the level below
+        int take = 2 * n - 2;
+        for (int level = maxLength - 1; level >= 0 && take > 0; level--) {
+            int packages = 0;
+            for (int i = 0; i < take; i++) {
+                if (leaves[level][i] >= 0) {
+                    lengths[sorted[leaves[level][i]]]++;
+                } else {
+                    packages++;
+                }
+            }
+            take = 2 * packages;
+        }
+        return lengths;
+    }
+
+    //the first n symbols ordered by frequency (then by byte value)
+    private static int[] sortByFrequency(int[] symbols, int n, int[] frequencies) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) frequencies[symbols[i]] << 8) | symbols[i];
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = (int) (keys[i] & 0xFF);
+        }
+        return sorted;
+    }
+
+    //builds the canonical codes straight from code lengths (for example the ones read from a compressed header)
+    public void buildFromCodeLengths(int[] lengths) {
+        if (lengths.length != 256) {
+            throw new IllegalArgumentException("Code lengths must have 256 entries.");
+        }
+        //the lengths must make a prefix code (sum of 2^-length <= 1)
+        double kraftSum = 0;
+        for (int length : lengths) {
+            if (length < 0 || length > HuffmanDecoder.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Invalid Huffman code length: " + length);
+            }
+            if (length > 0) {
+                kraftSum += Math.pow(2, -length);
+            }
+        }
+        if (kraftSum > 1.0) {
+            throw new IllegalArgumentException("Code lengths do not make a valid Huffman code.");
+        }
+        codeLengths = lengths.clone();
+        tableDecoder = null;
+        assignCanonicalCodes();
+    }
+
+    //gives out canonical codes for the code lengths (shorter codes first, then by byte value), counting the codes of
+    //each length first so every byte gets its code in one pass
+    private void assignCanonicalCodes() {
+        huffmanCodeMap.clear();
+        reverseHuffmanCodeMap.clear();
+        codes = new long[256];
+
+        int maxLength = 0;
+        for (int length : codeLengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int length : codeLengths) {
+            lengthCounts[length]++;
+        }
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            nextCode[length] = code;
+            code = (code + lengthCounts[length]) << 1;
+        }
+        for (int symbol = 0; symbol < 256; symbol++) {
+            if (codeLengths[symbol] > 0) {
+                codes[symbol] = nextCode[codeLengths[symbol]]++;
+            }
+        }
+    }
+
+    //fills the string code maps of encode(byte[]) and decode(String) (only the debug methods use them, so they are
+    //made the first time one of them is called)
+    private void buildCodeMaps() {
+        if (!huffmanCodeMap.isEmpty()) {
             return;
         }
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > 0) {
+                StringBuilder bits = new StringBuilder(Long.toBinaryString(codes[symbol]));
+                while (bits.length() < length) {
+                    bits.insert(0, '0');
+                }
+                huffmanCodeMap.put((byte) symbol, bits.toString());
+                reverseHuffmanCodeMap.put(bits.toString(), (byte) symbol);
+            }
+        }
+    }
+
+    //returns the length in bits of the code for b (0 if b is not in the tree)
+    public int getCodeLength(byte b) {
+        return codeLengths[b & 0xFF];
+    }
+
+    //returns the code length of every byte value (index is b & 0xFF)
+    public int[] getCodeLengths() {
+        return codeLengths.clone();
+    }
+
+    //size in bytes of the code length header written by writeCodeLengths
+    public int getCodeLengthsHeaderSize() {
+        int used = countUsedBytes();
+        return used < PAIR_HEADER_LIMIT ? 1 + 2 * used : 1 + 32 + used;
+    }
+
+    //writes the code lengths so a decoder can rebuild the same canonical codes: 1 byte with the number of used bytes - 1,
+    //then (byte, length) pairs for a few used bytes, or a 256 bit map of the used bytes and their lengths for many
+    public void writeCodeLengths(ByteBuffer out) {
+        int used = countUsedBytes();
+        if (used == 0) {
+            throw new IllegalStateException("There are no Huffman codes to write.");
+        }
+        out.put((byte) (used - 1));
+        if (used < PAIR_HEADER_LIMIT) {
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (codeLengths[symbol] > 0) {
+                    out.put((byte) symbol);
+                    out.put((byte) codeLengths[symbol]);
+                }
+            }
+        } else {
+            byte[] bitMap = new byte[32];
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (codeLengths[symbol] > 0) {
+                    bitMap[symbol >> 3] |= 1 << (symbol & 7);
+                }
+            }
+            out.put(bitMap);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (codeLengths[symbol] > 0) {
+                    out.put((byte) codeLengths[symbol]);
+                }
+            }
+        }
+    }
+
+    //reads a header written by writeCodeLengths and returns a HuffmanCoding with the same codes
+    public static HuffmanCoding readCodeLengths(ByteBuffer in) {
+        int[] lengths = new int[256];
+        int used = (in.get() & 0xFF) + 1;
+        if (used < PAIR_HEADER_LIMIT) {
+            for (int i = 0; i < used; i++) {
+                int symbol = in.get() & 0xFF;
+                lengths[symbol] = in.get() & 0xFF;
+            }
+        } else {
+            byte[] bitMap = new byte[32];
+            in.get(bitMap);
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if ((bitMap[symbol >> 3] & (1 << (symbol & 7))) != 0) {
+                    lengths[symbol] = in.get() & 0xFF;
+                }
+            }
+        }
+        HuffmanCoding huffmanCoding = new HuffmanCoding();
+        huffmanCoding.buildFromCodeLengths(lengths);
+        return huffmanCoding;
+    }
+
+    private int countUsedBytes() {
+        int used = 0;
+        for (int length : codeLengths) {
+            if (length > 0) {
+                used++;
+            }
+        }
+        return used;
+    }
 
-        //if its a leaf node, store the code in the map struct
-        if (node.left == null && node.right == null) {
-            huffmanCodeMap.put(node.data, code);
-            reverseHuffmanCodeMap.put(code, node.data);
+    //number of bits an input with this histogram takes encoded (no pass over the input)
+    public long getEncodedBitLength(int[] counts) {
+        long bits = 0;
+        for (int b = 0; b < 256; b++) {
+            bits += (long) counts[b] * codeLengths[b];
         }
+        return bits;
+    }
 
-        //recursively build the code map for left and right subtrees in Data structure above
-        buildCodeMap(node.left, code + "0");
-        buildCodeMap(node.right, code + "1");
+    //number of bits the encoded input takes
+    public long getEncodedBitLength(byte[] input, int offset, int length) {
+        long bits = 0;
+        for (int i = offset; i < offset + length; i++) {
+            bits += codeLengths[input[i] & 0xFF];
+        }
+        return bits;
+    }
+
+    //encodes the input straight into packed bits (8 bits per byte, first bit is the highest, last byte padded with 0)
+    public byte[] encodeToBytes(byte[] input) {
+        byte[] packed = new byte[(int) ((getEncodedBitLength(input, 0, input.length) + 7) / 8)];
+        encode(input, 0, input.length, packed, 0);
+        return packed;
+    }
+
+    //encodes input[offset..offset+length) into the buffer, which must have room for the packed bits
+    public void encode(byte[] input, int offset, int length, ByteBuffer out) {
+        int size = (int) ((getEncodedBitLength(input, offset, length) + 7) / 8);
+        if (out.hasArray()) {
+            encode(input, offset, length, out.array(), out.arrayOffset() + out.position());
+        } else {
+            byte[] packed = new byte[size];
+            encode(input, offset, length, packed, 0);
+            out.duplicate().put(packed);
+        }
+        out.position(out.position() + size);
+    }
+
+    //encodes input[offset..offset+length) into out[outOffset..] with a 64 bit accumulator and returns the bytes written
+    public int encode(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        return encode(input, offset, offset + length, 1, out, outOffset);
+    }
+
+    //size in bytes of what encodeInterleaved writes for input[offset..offset+length) (without the code lengths)
+    public long getInterleavedSize(byte[] input, int offset, int length) {
+        long[] bits = new long[INTERLEAVED_STREAMS];
+        for (int i = 0; i < length; i++) {
+            bits[i & 3] += codeLengths[input[offset + i] & 0xFF];
+        }
+        long size = 0;
+        for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+            long streamSize = (bits[stream] + 7) / 8;
+            size += streamSize + (stream < INTERLEAVED_STREAMS - 1 ? Varint.size(streamSize) : 0);
+        }
+        return size;
+    }
+
+    //encodes input[offset..offset+length) as 4 streams, symbol i goes to stream i % 4 and each stream is padded to a
+    //byte. a jump table with the byte size of the first 3 streams (varints) comes first, so the decoder can start
+    //reading all 4 at once and decode them in the same loop (the buffer must have room for getInterleavedSize bytes)
+    public void encodeInterleaved(byte[] input, int offset, int length, ByteBuffer out) {
+        byte[][] streams = new byte[INTERLEAVED_STREAMS][];
+        long[] bits = new long[INTERLEAVED_STREAMS];
+        for (int i = 0; i < length; i++) {
+            bits[i & 3] += codeLengths[input[offset + i] & 0xFF];
+        }
+        for (int stream = 0; stream < INTERLEAVED_STREAMS; stream++) {
+            streams[stream] = new byte[(int) ((bits[stream] + 7) / 8)];
+            encode(input, offset + stream, offset + length, INTERLEAVED_STREAMS, streams[stream], 0);
+        }
+        for (int stream = 0; stream < INTERLEAVED_STREAMS - 1; stream++) {
+            Varint.put(out, streams[stream].length);
+        }
+        for (byte[] stream : streams) {
+            out.put(stream);
+        }
+    }
+
+    //encodes every stride-th byte of input[first..end) into out[outOffset..] and returns the bytes written
+    private int encode(byte[] input, int first, int end, int stride, byte[] out, int outOffset) {
+        int[] lengths = codeLengths;
+        long[] codeBits = codes;
+        long accumulator = 0; //lowest bitCount bits are waiting to be written
+        int bitCount = 0;
+        int o = outOffset;
+
+        for (int i = first; i < end; i += stride) {
+            int symbol = input[i] & 0xFF;
+            int codeLength = lengths[symbol];
+            if (codeLength == 0) {
+                throw new IllegalArgumentException("Byte " + symbol + " is not in the Huffman tree.");
+            }
+            if (bitCount + codeLength > 64) {
+                //only very long codes get here, write out whole bytes first
+                while (bitCount >= 8) {
+                    bitCount -= 8;
+                    out[o++] = (byte) (accumulator >>> bitCount);
+                }
+            }
+            accumulator = (accumulator << codeLength) | codeBits[symbol];
+            bitCount += codeLength;
+
+            if (bitCount >= 32) {
+                bitCount -= 32;
+                int word = (int) (accumulator >>> bitCount);
+                out[o] = (byte) (word >>> 24);
+                out[o + 1] = (byte) (word >>> 16);
+                out[o + 2] = (byte) (word >>> 8);
+                out[o + 3] = (byte) word;
+                o += 4;
+            }
+        }
+
+        //last bits, padded with zeros
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            out[o++] = (byte) (accumulator >>> bitCount);
+        }
+        if (bitCount > 0) {
+            out[o++] = (byte) (accumulator << (8 - bitCount));
+        }
+        return o - outOffset;
     }
 
    
-    //encodes the input byte array using the huffman code map.
+    //encodes the input byte array using the huffman code map (debug, encodeToBytes writes packed bits directly).
     public String encode(byte[] input) {
+        buildCodeMaps();
         StringBuilder encoded = new StringBuilder();
 
         for (byte b : input) {
@@ -95,8 +525,9 @@ public class HuffmanCoding {
     }
 
     
-    //decodes a Huffman encoded string back to a byte array.
+    //decodes a Huffman encoded string back to a byte array (debug, decode(byte[], int) reads packed bits much faster).
     public byte[] decode(String encoded) {
+        buildCodeMaps();
         StringBuilder currentCode = new StringBuilder();
         List<Byte> decodedBytes = new ArrayList<>();
 
@@ -115,6 +546,39 @@ public class HuffmanCoding {
         return byteArray;
     }
 
+    //decodes count bytes from packed bits (8 bits per byte, first bit is the highest) with the table decoder
+    public byte[] decode(byte[] packed, int count) {
+        byte[] decoded = new byte[count];
+        getTableDecoder().decode(packed, 0, packed.length, decoded, 0, count);
+        return decoded;
+    }
+
+    //decodes count bytes from the buffer into out[offset..], the buffer moves past the bytes that were read
+    public void decode(ByteBuffer packed, byte[] out, int offset, int count) {
+        getTableDecoder().decode(packed, out, offset, count);
+    }
+
+    //decodes count bytes written by encodeInterleaved from the buffer into out[offset..], the buffer moves past them
+    public void decodeInterleaved(ByteBuffer packed, byte[] out, int offset, int count) {
+        int[] sizes = new int[INTERLEAVED_STREAMS - 1];
+        long total = 0;
+        for (int stream = 0; stream < sizes.length; stream++) {
+            sizes[stream] = Varint.get(packed);
+            total += sizes[stream];
+        }
+        if (total > packed.remaining()) {
+            throw new IllegalArgumentException("Interleaved Huffman streams are truncated.");
+        }
+        getTableDecoder().decodeInterleaved(packed, sizes, out, offset, count);
+    }
+
+    private HuffmanDecoder getTableDecoder() {
+        if (tableDecoder == null) {
+            tableDecoder = new HuffmanDecoder(codeLengths);
+        }
+        return tableDecoder;
+    }
+
     
      
     //saves all the compressed data to a file
@@ -141,14 +605,11 @@ public class HuffmanCoding {
         String input = readInputFromFile(inputFilePath);
         byte[] inputBytes = input.getBytes(StandardCharsets.UTF_8);
 
-        //build a frequency map of the bytes in the input string
-        Map<Byte, Integer> frequencyMap = new HashMap<>();
-        for (byte b : inputBytes) {
-            frequencyMap.put(b, frequencyMap.getOrDefault(b, 0) + 1);
-        }
+        //histogram of the bytes in the input string
+        int[] counts = ByteStatistics.histogram(inputBytes, 0, inputBytes.length);
 
         HuffmanCoding huffmanCoding = new HuffmanCoding();
-        huffmanCoding.buildHuffmanTree(frequencyMap); // make the huffman tree
+        huffmanCoding.buildHuffmanTree(counts); // make the huffman tree
 
         //Encode using huffman
         String encoded = huffmanCoding.encode(inputBytes);
@@ -0,0 +1,407 @@
+package CompressionProject;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+//table driven decoder for canonical Huffman codes (the codes HuffmanCoding makes)
+//reads the packed bits straight from a byte array: the next TABLE_BITS bits index a table that gives the symbol and
+//the code length in one step, codes longer than TABLE_BITS go through a second table for their prefix
+public class HuffmanDecoder {
+
+    public static final int TABLE_BITS = 11; //bits looked up in the first table
+    private static final int MAX_SUB_BITS = 12; //longest extra bits for a second table (longer codes are decoded bit by bit)
+    public static final int MAX_CODE_LENGTH = 56; //the 64 bit reader always has at least this many bits after a refill
+
+    private static final int LINK = 1 << 31; //entry points to a second table (offset << 4 | sub bits)
+    private static final int SLOW = 0; //no table entry for these bits, decode bit by bit
+
+    //reads 8 bytes of a byte array as one big endian long
+    private static final VarHandle BIG_ENDIAN_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    //entries are (code length << 8 | symbol), or LINK entries, or SLOW
+    private final int[] table;
+
+    //canonical code tables for the bit by bit path
+    private final int maxLength;
+    private final int refillBits; //the reader refills when it has fewer bits than this left
+    private final long[] firstCode;
+    private final int[] firstIndex;
+    private final int[] lengthCount;
+    private final int[] sortedSymbols;
+
+    //constructor that builds the tables from the code length of every byte value (0 = byte not used)
+    public HuffmanDecoder(int[] codeLengths) {
+        if (codeLengths.length != 256) {
+            throw new IllegalArgumentException("Code lengths must have 256 entries.");
+        }
+        int max = 0;
+        for (int length : codeLengths) {
+            if (length < 0 || length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Invalid Huffman code length: " + length);
+            }
+            max = Math.max(max, length);
+        }
+        maxLength = max;
+        refillBits = Math.max(TABLE_BITS + MAX_SUB_BITS, max);
+
+        //canonical codes: shorter codes first, same length ordered by symbol
+        lengthCount = new int[max + 2];
+        for (int length : codeLengths) {
+            if (length > 0) {
+                lengthCount[length]++;
+            }
+        }
+        firstCode = new long[max + 2];
+        firstIndex = new int[max + 2];
+        long code = 0;
+        int index = 0;
+        for (int length = 1; length <= max; length++) {
+            firstCode[length] = code;
+            firstIndex[length] = index;
+            code = (code + lengthCount[length]) << 1;
+            index += lengthCount[length];
+        }
+        sortedSymbols = new int[index];
+        long[] codes = new long[256];
+        int[] next = firstIndex.clone();
+        for (int length = 1; length <= max; length++) {
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (codeLengths[symbol] == length) {
+                    int position = next[length]++;
+                    sortedSymbols[position] = symbol;
+                    codes[symbol] = firstCode[length] + (position - firstIndex[length]);
+                }
+            }
+        }
+
+        table = buildTables(codeLengths, codes);
+    }
+
+    //fills the first table and the second tables (added after the first one in the same array)
+    private static int[] buildTables(int[] codeLengths, long[] codes) {
+        int primarySize = 1 << TABLE_BITS;
+
+        //longest code under each first table prefix decides the size of its second table
+        int[] prefixMax = new int[primarySize];
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int length = codeLengths[symbol];
+            if (length > TABLE_BITS) {
+                int prefix = (int) (codes[symbol] >>> (length - TABLE_BITS));
+                prefixMax[prefix] = Math.max(prefixMax[prefix], length);
+            }
+        }
+        int[] subOffset = new int[primarySize];
+        int total = primarySize;
+        for (int prefix = 0; prefix < primarySize; prefix++) {
+            int subBits = prefixMax[prefix] - TABLE_BITS;
+            if (subBits > 0 && subBits <= MAX_SUB_BITS) {
+                subOffset[prefix] = total;
+                total += 1 << subBits;
+            }
+        }
+
+        int[] table = new int[total];
+        for (int prefix = 0; prefix < primarySize; prefix++) {
+            int subBits = prefixMax[prefix] - TABLE_BITS;
+            if (subBits > 0 && subBits <= MAX_SUB_BITS) {
+                table[prefix] = LINK | (subOffset[prefix] << 4) | subBits;
+            }
+        }
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int length = codeLengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            int entry = (length << 8) | symbol;
+            if (length <= TABLE_BITS) {
+                //every index that starts with this code
+                int first = (int) (codes[symbol] << (TABLE_BITS - length));
+                int count = 1 << (TABLE_BITS - length);
+                for (int i = 0; i < count; i++) {
+                    table[first + i] = entry;
+                }
+            } else {
+                int prefix = (int) (codes[symbol] >>> (length - TABLE_BITS));
+                int subBits = prefixMax[prefix] - TABLE_BITS;
+                if (subBits > MAX_SUB_BITS) {
+                    continue; //stays SLOW
+                }
+                int rest = length - TABLE_BITS;
+                int low = (int) (codes[symbol] & ((1L << rest) - 1));
+                int first = subOffset[prefix] + (low << (subBits - rest));
+                int count = 1 << (subBits - rest);
+                for (int i = 0; i < count; i++) {
+                    table[first + i] = entry;
+                }
+            }
+        }
+        return table;
+    }
+
+    //decodes count symbols from the buffer into out[outOffset..], the buffer position moves past the bytes that were used
+    public void decode(ByteBuffer in, byte[] out, int outOffset, int count) {
+        int used;
+        if (in.hasArray()) {
+            used = decode(in.array(), in.arrayOffset() + in.position(), in.remaining(), out, outOffset, count);
+        } else {
+            byte[] bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            used = decode(bytes, 0, bytes.length, out, outOffset, count);
+        }
+        in.position(in.position() + used);
+    }
+
+    //decodes count symbols from in[inOffset..inOffset+inLength) into out[outOffset..] and returns the bytes of input used
+    public int decode(byte[] in, int inOffset, int inLength, byte[] out, int outOffset, int count) {
+        if (maxLength <= TABLE_BITS) {
+            return decodeShortCodes(in, inOffset, inLength, out, outOffset, count);
+        }
+        int inPos = inOffset;
+        int inEnd = inOffset + inLength;
+        long bitBuffer = 0; //next bits are at the top of the long
+        int bitCount = 0;
+        int padding = 0; //zero bytes read after the end of the input
+
+        int outEnd = outOffset + count;
+        for (int o = outOffset; o < outEnd; o++) {
+            if (bitCount < refillBits) {
+                while (bitCount <= 56) {
+                    int b;
+                    if (inPos < inEnd) {
+                        b = in[inPos++] & 0xFF;
+                    } else {
+                        b = 0;
+                        padding++;
+                    }
+                    bitBuffer |= (long) b << (56 - bitCount);
+                    bitCount += 8;
+                }
+            }
+
+            int entry = table[(int) (bitBuffer >>> (64 - TABLE_BITS))];
+            if ((entry & LINK) != 0) {
+                int subBits = entry & 0xF;
+                int offset = (entry & ~LINK) >>> 4;
+                entry = table[offset + (int) ((bitBuffer << TABLE_BITS) >>> (64 - subBits))];
+            }
+            if (entry == SLOW) {
+                entry = decodeSlow(bitBuffer);
+            }
+
+            int length = entry >>> 8;
+            out[o] = (byte) entry;
+            bitBuffer <<= length;
+            bitCount -= length;
+        }
+
+        long bitsUsed = (long) (inPos - inOffset + padding) * 8 - bitCount;
+        if (bitsUsed > (long) inLength * 8) {
+            throw new IllegalArgumentException("Huffman data ended before all symbols were decoded.");
+        }
+        return (int) ((bitsUsed + 7) / 8);
+    }
+
+    //decode for codes that all fit the first table (length limited codes): one lookup per symbol and
+    //one refill for as many symbols as the bit buffer surely holds (5 for 11 bit codes)
+    private int decodeShortCodes(byte[] in, int inOffset, int inLength, byte[] out, int outOffset, int count) {
+        int inPos = inOffset;
+        int inEnd = inOffset + inLength;
+        long bitBuffer = 0; //next bits are at the top of the long
+        int bitCount = 0;
+        int padding = 0; //zero bytes read after the end of the input
+        int[] table = this.table;
+        int longest = Math.max(1, maxLength);
+
+        int o = outOffset;
+        int outEnd = outOffset + count;
+        while (o < outEnd) {
+            if (inEnd - inPos >= 8) {
+                //branch free refill: add all whole bytes that fit, the bytes of a partly added byte are read again next time
+                bitBuffer |= (long) BIG_ENDIAN_LONG.get(in, inPos) >>> bitCount;
+                inPos += (63 - bitCount) >>> 3;
+                bitCount |= 56;
+            }
+            while (bitCount <= 56) {
+                int b;
+                if (inPos < inEnd) {
+                    b = in[inPos++] & 0xFF;
+                } else {
+                    b = 0;
+                    padding++;
+                }
+                bitBuffer |= (long) b << (56 - bitCount);
+                bitCount += 8;
+            }
+
+            int end = Math.min(outEnd, o + bitCount / longest);
+            while (o < end) {
+                int entry = table[(int) (bitBuffer >>> (64 - TABLE_BITS))];
+                if (entry == SLOW) {
+                    entry = decodeSlow(bitBuffer); //bits that are no code (throws)
+                }
+                int length = entry >>> 8;
+                out[o++] = (byte) entry;
+                bitBuffer <<= length;
+                bitCount -= length;
+            }
+        }
+
+        long bitsUsed = (long) (inPos - inOffset + padding) * 8 - bitCount;
+        if (bitsUsed > (long) inLength * 8) {
+            throw new IllegalArgumentException("Huffman data ended before all symbols were decoded.");
+        }
+        return (int) ((bitsUsed + 7) / 8);
+    }
+
+    //decodes count symbols written as interleaved streams (HuffmanCoding.encodeInterleaved, sizes are the byte sizes
+    //of the first streams from its jump table) from the buffer into out[outOffset..], the buffer moves past them
+    public void decodeInterleaved(ByteBuffer in, int[] sizes, byte[] out, int outOffset, int count) {
+        int used;
+        if (in.hasArray()) {
+            used = decodeInterleaved(in.array(), in.arrayOffset() + in.position(), in.remaining(), sizes, out, outOffset, count);
+        } else {
+            byte[] bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            used = decodeInterleaved(bytes, 0, bytes.length, sizes, out, outOffset, count);
+        }
+        in.position(in.position() + used);
+    }
+
+    //decodes count symbols from interleaved streams in in[inOffset..inOffset+inLength) (symbol i is in stream i % 4,
+    //the streams follow each other and sizes holds the byte size of all but the last one) and returns the bytes used.
+    //the 4 bit readers are independent, so the lookups of one loop round do not wait on each other
+    public int decodeInterleaved(byte[] in, int inOffset, int inLength, int[] sizes, byte[] out, int outOffset, int count) {
+        int streams = sizes.length + 1;
+        if (streams != 4) {
+            throw new IllegalArgumentException("Interleaved Huffman data must have 4 streams.");
+        }
+        int[] starts = new int[streams];
+        int[] ends = new int[streams];
+        long pos = inOffset;
+        for (int stream = 0; stream < streams - 1; stream++) {
+            starts[stream] = (int) pos;
+            pos += sizes[stream];
+            ends[stream] = (int) Math.min(pos, Integer.MAX_VALUE);
+        }
+        if (pos > inOffset + inLength) {
+            throw new IllegalArgumentException("Huffman data ended before all symbols were decoded.");
+        }
+        starts[streams - 1] = (int) pos;
+        ends[streams - 1] = inOffset + inLength;
+
+        if (maxLength > TABLE_BITS) {
+            //codes that need the second tables: each stream is decoded on its own and its symbols put in place
+            int used = 0;
+            for (int stream = 0; stream < streams; stream++) {
+                int symbols = (count - stream + streams - 1) / streams;
+                byte[] decoded = new byte[symbols];
+                used = decode(in, starts[stream], ends[stream] - starts[stream], decoded, 0, symbols);
+                for (int i = 0; i < symbols; i++) {
+                    out[outOffset + stream + i * streams] = decoded[i];
+                }
+            }
+            return starts[streams - 1] - inOffset + used;
+        }
+
+        int[] table = this.table;
+        int perRefill = 56 / Math.max(1, maxLength); //symbols each reader surely holds after a refill
+        long buffer0 = 0, buffer1 = 0, buffer2 = 0, buffer3 = 0; //next bits are at the top of each long
+        int bits0 = 0, bits1 = 0, bits2 = 0, bits3 = 0;
+        int pos0 = starts[0], pos1 = starts[1], pos2 = starts[2], pos3 = starts[3];
+        int end0 = ends[0], end1 = ends[1], end2 = ends[2], end3 = ends[3];
+        int o = outOffset;
+        int outEnd = outOffset + count;
+
+        //main loop: branch free refill of all 4 readers, then perRefill symbols from each in turn
+        while (outEnd - o >= 4 * perRefill && end0 - pos0 >= 8 && end1 - pos1 >= 8 && end2 - pos2 >= 8 && end3 - pos3 >= 8) {
+            buffer0 |= (long) BIG_ENDIAN_LONG.get(in, pos0) >>> bits0;
+            pos0 += (63 - bits0) >>> 3;
+            bits0 |= 56;
+            buffer1 |= (long) BIG_ENDIAN_LONG.get(in, pos1) >>> bits1;
+            pos1 += (63 - bits1) >>> 3;
+            bits1 |= 56;
+            buffer2 |= (long) BIG_ENDIAN_LONG.get(in, pos2) >>> bits2;
+            pos2 += (63 - bits2) >>> 3;
+            bits2 |= 56;
+            buffer3 |= (long) BIG_ENDIAN_LONG.get(in, pos3) >>> bits3;
+            pos3 += (63 - bits3) >>> 3;
+            bits3 |= 56;
+
+            for (int i = 0; i < perRefill; i++) {
+                int entry0 = table[(int) (buffer0 >>> (64 - TABLE_BITS))];
+                int entry1 = table[(int) (buffer1 >>> (64 - TABLE_BITS))];
+                int entry2 = table[(int) (buffer2 >>> (64 - TABLE_BITS))];
+                int entry3 = table[(int) (buffer3 >>> (64 - TABLE_BITS))];
+                if (((entry0 - 256) | (entry1 - 256) | (entry2 - 256) | (entry3 - 256)) < 0) {
+                    throw new IllegalArgumentException("Invalid Huffman code in the data."); //a SLOW entry, no code has these bits
+                }
+                out[o] = (byte) entry0;
+                out[o + 1] = (byte) entry1;
+                out[o + 2] = (byte) entry2;
+                out[o + 3] = (byte) entry3;
+                o += 4;
+                buffer0 <<= entry0 >>> 8;
+                bits0 -= entry0 >>> 8;
+                buffer1 <<= entry1 >>> 8;
+                bits1 -= entry1 >>> 8;
+                buffer2 <<= entry2 >>> 8;
+                bits2 -= entry2 >>> 8;
+                buffer3 <<= entry3 >>> 8;
+                bits3 -= entry3 >>> 8;
+            }
+        }
+
+        //the last symbols one at a time, reading byte by byte and padding with zeros after the end of a stream
+        long[] buffers = { buffer0, buffer1, buffer2, buffer3 };
+        int[] bits = { bits0, bits1, bits2, bits3 };
+        int[] positions = { pos0, pos1, pos2, pos3 };
+        int[] padding = new int[streams];
+        for (; o < outEnd; o++) {
+            int stream = (o - outOffset) & 3;
+            while (bits[stream] <= 56) {
+                int b;
+                if (positions[stream] < ends[stream]) {
+                    b = in[positions[stream]++] & 0xFF;
+                } else {
+                    b = 0;
+                    padding[stream]++;
+                }
+                buffers[stream] |= (long) b << (56 - bits[stream]);
+                bits[stream] += 8;
+            }
+            int entry = table[(int) (buffers[stream] >>> (64 - TABLE_BITS))];
+            if (entry == SLOW) {
+                entry = decodeSlow(buffers[stream]); //bits that are no code (throws)
+            }
+            out[o] = (byte) entry;
+            buffers[stream] <<= entry >>> 8;
+            bits[stream] -= entry >>> 8;
+        }
+
+        long lastBitsUsed = 0;
+        for (int stream = 0; stream < streams; stream++) {
+            long bitsUsed = (long) (positions[stream] - starts[stream] + padding[stream]) * 8 - bits[stream];
+            if (bitsUsed > (long) (ends[stream] - starts[stream]) * 8) {
+                throw new IllegalArgumentException("Huffman data ended before all symbols were decoded.");
+            }
+            lastBitsUsed = bitsUsed;
+        }
+        return starts[streams - 1] - inOffset + (int) ((lastBitsUsed + 7) / 8);
+    }
+
+    //canonical decode one bit at a time (for codes too long for the tables)
+    private int decodeSlow(long bitBuffer) {
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code << 1) | ((bitBuffer >>> (64 - length)) & 1);
+            long index = code - firstCode[length];
+            if (index >= 0 && index < lengthCount[length]) {
+                return (length << 8) | sortedSymbols[firstIndex[length] + (int) index];
+            }
+        }
+        throw new IllegalArgumentException("Invalid Huffman code in the data.");
+    }
+}
@@ -3,7 +3,9 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -11,7 +13,7 @@ import java.util.List;
 class LZ77CompressedData {
     int offset;
     int length;
-    char nextChar;
+    char nextChar; //the byte after the match (0-255)
 
     
     //constructor for LZ77CompressedData
@@ -32,57 +34,164 @@ public class LZ77 {
 	//size of window and buffer (in the Dynamic LZ77 this not will be final variables to adjust the size to each file)
     private static final int WINDOW_SIZE = 1024; // Sliding window size
     private static final int BUFFER_SIZE = 256; // Buffer size for search
+    static final int SHORT_MATCH = 8; // matches up to this long are copied byte by byte (cheaper than a call)
 
     
-    //compresses the input string using LZ77 algorithm.
+    //compresses the input string using LZ77 algorithm (the tuples work on the UTF-8 bytes of the string).
     public static List<LZ77CompressedData> compress(String input) {
-        List<LZ77CompressedData> compressedData = new ArrayList<>();
-        int cursor = 0;
-
-        while (cursor < input.length()) {
-            int matchLength = 0;
-            int matchDistance = 0;
-
-            for (int j = Math.max(cursor - WINDOW_SIZE, 0); j < cursor; j++) {
-                int k = 0;
-                while (k < BUFFER_SIZE && cursor + k < input.length()
-                        && input.charAt(j + k) == input.charAt(cursor + k)) {
-                    k++;
-                }
-
-                if (k > matchLength) {
-                    matchLength = k;
-                    matchDistance = cursor - j;
-                }
+        return compress(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //compresses the input string using LZ77 algorithm, maxChainDepth limits how many earlier matches are checked per byte
+    public static List<LZ77CompressedData> compress(String input, int maxChainDepth) {
+        return compress(input.getBytes(StandardCharsets.UTF_8), maxChainDepth);
+    }
+
+    //compresses any bytes (text or binary) using LZ77 algorithm.
+    public static List<LZ77CompressedData> compress(byte[] input) {
+        return compress(input, HashChainMatchFinder.DEFAULT_MAX_CHAIN_DEPTH);
+    }
+
+    //compresses any bytes using LZ77 algorithm, maxChainDepth limits how many earlier matches are checked per byte
+    public static List<LZ77CompressedData> compress(byte[] input, int maxChainDepth) {
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer();
+        compress(input, maxChainDepth, tokens);
+        List<LZ77CompressedData> compressedData = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            compressedData.add(new LZ77CompressedData(tokens.getOffset(i), tokens.getLength(i),
+                    (char) (tokens.getNextByte(i) & 0xFF)));
+        }
+        return compressedData;
+    }
+
+    //compresses any bytes into a token buffer (no object per tuple)
+    public static LZ77TokenBuffer compressToBuffer(byte[] input) {
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(Math.max(16, input.length / 8));
+        compress(input, HashChainMatchFinder.DEFAULT_MAX_CHAIN_DEPTH, tokens);
+        return tokens;
+    }
+
+    //compresses any bytes and adds the tuples to the token buffer
+    public static void compress(byte[] input, int maxChainDepth, LZ77TokenBuffer tokens) {
+        compress(input, 0, maxChainDepth, tokens);
+    }
+
+    //compresses the input with the dictionary bytes in the window before it (only the last WINDOW_SIZE bytes of the
+    //dictionary are used), decompress the tuples with decompressToBytes(tokens, dictionary)
+    public static void compress(byte[] input, byte[] dictionary, int maxChainDepth, LZ77TokenBuffer tokens) {
+        int used = Math.min(dictionary.length, WINDOW_SIZE);
+        byte[] data = new byte[used + input.length];
+        System.arraycopy(dictionary, dictionary.length - used, data, 0, used);
+        System.arraycopy(input, 0, data, used, input.length);
+        compress(data, used, maxChainDepth, tokens);
+    }
+
+    //compresses data[start..], the bytes before start are only in the window
+    private static void compress(byte[] data, int start, int maxChainDepth, LZ77TokenBuffer tokens) {
+        MatchFinder matchFinder = new HashChainMatchFinder(WINDOW_SIZE, BUFFER_SIZE, maxChainDepth);
+        matchFinder.reset(data, data.length);
+        for (int pos = 0; pos < start; pos++) {
+            matchFinder.skip(pos);
+        }
+        int cursor = start;
+
+        while (cursor < data.length) {
+            //the match stops before the last byte so every tuple has a real next byte
+            int matchLength = Math.min(matchFinder.findLongestMatch(cursor), data.length - cursor - 1);
+            int matchDistance = matchLength > 0 ? matchFinder.getMatchDistance() : 0;
+
+            //add the rest of the positions covered by this tuple to the match finder
+            for (int i = 1; i <= matchLength; i++) {
+                matchFinder.skip(cursor + i);
             }
 
-            char nextChar = cursor + matchLength < input.length() ? input.charAt(cursor + matchLength) : '\0';
-            compressedData.add(new LZ77CompressedData(matchDistance, matchLength, nextChar));
+            tokens.add(matchDistance, matchLength, data[cursor + matchLength]);
             cursor += matchLength + 1;
         }
-
-        return compressedData;
     }
 
    
     
-    //decompresses the list of LZ77CompressedData back to the original string
+    //decompresses the list of LZ77CompressedData back to the original string (decodes the bytes as UTF-8)
     public static String decompress(List<LZ77CompressedData> compressedData) {
-        StringBuilder decompressed = new StringBuilder();
+        return new String(decompressToBytes(compressedData), StandardCharsets.UTF_8);
+    }
 
+    //decompresses the list of LZ77CompressedData back to the original bytes
+    public static byte[] decompressToBytes(List<LZ77CompressedData> compressedData) {
+        int size = 0;
         for (LZ77CompressedData data : compressedData) {
-            int start = Math.max(decompressed.length() - data.offset, 0);
+            size += data.length + 1;
+        }
+        byte[] decompressed = new byte[size];
+        int pos = 0;
 
-            for (int i = 0; i < data.length; i++) {
-                decompressed.append(decompressed.charAt(start + i));
+        for (LZ77CompressedData data : compressedData) {
+            if (data.length > 0 && (data.offset <= 0 || data.offset > pos)) {
+                throw new IllegalArgumentException("Invalid LZ77 tuple: " + data);
             }
+            pos = copyMatch(decompressed, pos, data.offset, data.length);
+            decompressed[pos++] = (byte) data.nextChar; //every tuple has a next byte (also a 0 byte)
+        }
+
+        return decompressed;
+    }
+
+    //decompresses a token buffer back to the original string (decodes the bytes as UTF-8)
+    public static String decompress(LZ77TokenBuffer tokens) {
+        return new String(decompressToBytes(tokens), StandardCharsets.UTF_8);
+    }
 
-            if (data.nextChar != '\0') {
-                decompressed.append(data.nextChar);
+    //decompresses a token buffer back to the original bytes
+    public static byte[] decompressToBytes(LZ77TokenBuffer tokens) {
+        if (tokens.getDecodedLength() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tuples decode to more than 2GB.");
+        }
+        byte[] decompressed = new byte[(int) tokens.getDecodedLength()];
+        tokens.decodeInto(decompressed, 0, 0);
+        return decompressed;
+    }
+
+    //decompresses a token buffer into a preallocated array (for example one reused for many inputs), nothing is
+    //allocated, returns the number of bytes written to out[outOffset..]
+    public static int decompressInto(LZ77TokenBuffer tokens, byte[] out, int outOffset) {
+        return tokens.decodeInto(out, outOffset, outOffset) - outOffset;
+    }
+
+    //copies the match of length bytes from distance back to out[pos..] and returns the position after it:
+    //short matches byte by byte, a match that does not overlap the bytes it writes with one arraycopy, a run of one
+    //byte (distance 1) with a fill, and other overlapping matches in chunks that double in size, as every copied
+    //chunk makes the repeated part before pos longer
+    public static int copyMatch(byte[] out, int pos, int distance, int length) {
+        int start = pos - distance;
+        if (length <= SHORT_MATCH) {
+            for (int k = 0; k < length; k++) {
+                out[pos + k] = out[start + k];
+            }
+        } else if (distance >= length) {
+            System.arraycopy(out, start, out, pos, length);
+        } else if (distance == 1) {
+            Arrays.fill(out, pos, pos + length, out[start]);
+        } else {
+            int copied = 0;
+            while (copied < length) {
+                int chunk = Math.min(pos + copied - start, length - copied);
+                System.arraycopy(out, start, out, pos + copied, chunk);
+                copied += chunk;
             }
         }
+        return pos + length;
+    }
 
-        return decompressed.toString();
+    //decompresses tuples that were compressed with a dictionary (LZ77 or LZ77Dynamic) back to the original bytes
+    public static byte[] decompressToBytes(LZ77TokenBuffer tokens, byte[] dictionary) {
+        if (dictionary.length + tokens.getDecodedLength() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tuples decode to more than 2GB.");
+        }
+        byte[] decompressed = new byte[dictionary.length + (int) tokens.getDecodedLength()];
+        System.arraycopy(dictionary, 0, decompressed, 0, dictionary.length);
+        tokens.decodeInto(decompressed, 0, dictionary.length);
+        return Arrays.copyOfRange(decompressed, dictionary.length, decompressed.length);
     }
 
     //main method for testing LZ77 compression and decompression without other methods (Debug to check the code)
@@ -1,78 +1,288 @@
 package CompressionProject;
 
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 
 //lz77 class that uses Optimized window and buffer size for better compression (Flexible for more text files) 
 public class LZ77Dynamic {
 
+    //which match finder compress uses (the binary tree one keeps large windows fast)
+    public enum MatchFinderType {
+        HASH_CHAIN,
+        BINARY_TREE
+    }
+
+    //how compress picks the tuples: greedy takes the longest match, lazy also checks the next byte first, and optimal
+    //prices the tuples with Huffman code lengths from a greedy pass and picks the cheapest path (slowest, smallest output)
+    public enum ParseMode {
+        GREEDY,
+        LAZY,
+        OPTIMAL
+    }
+
+    public static final int MAX_WINDOW_SIZE = 64 * 1024 * 1024; //largest window that can be set (64MB)
+
     private int windowSize;
     private int bufferSize;
+    private int maxChainDepth = HashChainMatchFinder.DEFAULT_MAX_CHAIN_DEPTH; //how many earlier matches the match finder checks
+    private int niceLength = Integer.MAX_VALUE; //a match this long stops the search and the lazy look ahead (no limit by default)
+    private MatchFinderType matchFinderType = MatchFinderType.HASH_CHAIN;
+    private ParseMode parseMode = ParseMode.GREEDY;
 
-    //constructor that adjusts parameters based on strings input
+    //constructor that adjusts parameters based on strings input (its UTF-8 bytes)
     public LZ77Dynamic(String input) {
-        adjustParameters(input);
+        this(input.getBytes(StandardCharsets.UTF_8));
     }
 
-    //adjusts the window and buffer sizes based on input entropy and redundancy (The dynamic part of the regular lz77 that we know from class)
-    private void adjustParameters(String input) {
-        double entropy = LZ77Optimizer.calculateEntropy(input);
-        double redundancy = LZ77Optimizer.estimateRedundancy(input);
+    //constructor that adjusts parameters based on the input bytes
+    public LZ77Dynamic(byte[] input) {
+        adjustParameters(input);
+    }
 
-        //adjust window size based on redundancy with refined threshold
-        if (redundancy > 0.3) {
-            windowSize = Math.min(4096, input.length() / 2); //increase window size
-        } else {
-            windowSize = 512; //smaller window size for less redundancy
+    //constructor with a custom max chain depth for the match finder (lower is faster, higher finds longer matches)
+    public LZ77Dynamic(String input, int maxChainDepth) {
+        if (maxChainDepth <= 0) {
+            throw new IllegalArgumentException("Max chain depth must be positive.");
         }
+        this.maxChainDepth = maxChainDepth;
+        adjustParameters(input.getBytes(StandardCharsets.UTF_8));
+    }
 
-        //adjust buffer size based on entropy with refined threshold
-        if (entropy < 3.5) {
-            bufferSize = 512; //larger buffer for lower entropy
-        } else {
-            bufferSize = 128; //default buffer size (same as the regular LZ77)
+    //constructor with fixed window and buffer sizes (for input that is not all known up front, like a stream)
+    public LZ77Dynamic(int windowSize, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
         }
+        setWindowSize(windowSize);
+        this.bufferSize = bufferSize;
+    }
+
+    //adjusts the window and buffer sizes based on input entropy and redundancy (The dynamic part of the regular lz77 that we know from class)
+    private void adjustParameters(byte[] input) {
+        //one pass over a sample of the input (all of it up to 16KB) gives both numbers
+        ByteStatistics statistics = ByteStatistics.sample(input, 0, input.length);
+        windowSize = adjustedWindowSize(statistics, input.length);
+        bufferSize = adjustedBufferSize(statistics);
         //print in console to see the changes for different text files (examples in src folder of the project)
         System.out.println("Adjusted Window Size: " + windowSize);
         System.out.println("Adjusted Buffer Size: " + bufferSize);
     }
 
+    //a compressor with the adjusted sizes for a block with these statistics (ByteStatistics.sample of the block),
+    //without printing them (used by LZ77Tuner on worker threads)
+    static LZ77Dynamic adjustedFor(ByteStatistics statistics, int length) {
+        return new LZ77Dynamic(Math.max(1, adjustedWindowSize(statistics, length)), adjustedBufferSize(statistics));
+    }
+
+    //window size based on redundancy with refined threshold
+    private static int adjustedWindowSize(ByteStatistics statistics, int length) {
+        double redundancy = statistics.getTotal() == 0 ? Double.NaN
+                : 1.0 - ((double) statistics.distinct() / statistics.getTotal());
+        if (redundancy > 0.3) {
+            return Math.min(4096, length / 2); //increase window size
+        }
+        return 512; //smaller window size for less redundancy
+    }
+
+    //buffer size based on entropy with refined threshold
+    private static int adjustedBufferSize(ByteStatistics statistics) {
+        if (statistics.entropy() < 3.5) {
+            return 512; //larger buffer for lower entropy
+        }
+        return 128; //default buffer size (same as the regular LZ77)
+    }
+
     
+    //selects the match finder, for the binary tree the chain depth is used as the max tree depth
+    public void setMatchFinderType(MatchFinderType matchFinderType) {
+        this.matchFinderType = matchFinderType;
+    }
+
+    //selects how the tuples are picked (trades CPU time for compression ratio)
+    public void setParseMode(ParseMode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    //overrides the adjusted window size (for example 1-64MB windows with the binary tree finder on very redundant input)
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0 || windowSize > MAX_WINDOW_SIZE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + MAX_WINDOW_SIZE + ".");
+        }
+        this.windowSize = windowSize;
+    }
+
+    //overrides the max chain depth of the match finder (LZ77Tuner sets it per block)
+    public void setMaxChainDepth(int maxChainDepth) {
+        if (maxChainDepth <= 0) {
+            throw new IllegalArgumentException("Max chain depth must be positive.");
+        }
+        this.maxChainDepth = maxChainDepth;
+    }
+
+    //sets the "good enough" match length: the hash chain search stops at a match this long and lazy parsing takes it
+    //without looking at the next byte (the binary tree finder always searches up to its depth)
+    public void setNiceLength(int niceLength) {
+        if (niceLength <= 0) {
+            throw new IllegalArgumentException("Nice length must be positive.");
+        }
+        this.niceLength = niceLength;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    //makes the match finder for the current settings, with the bytes before start (up to the window size) already added
+    private MatchFinder createMatchFinder(byte[] data, int start, int end) {
+        MatchFinder matchFinder;
+        if (matchFinderType == MatchFinderType.BINARY_TREE) {
+            matchFinder = new BinaryTreeMatchFinder(windowSize, bufferSize, maxChainDepth);
+        } else {
+            matchFinder = new HashChainMatchFinder(windowSize, bufferSize, maxChainDepth, niceLength);
+        }
+        matchFinder.reset(data, end);
+        for (int pos = Math.max(0, start - windowSize); pos < start; pos++) {
+            matchFinder.skip(pos);
+        }
+        return matchFinder;
+    }
+
     //compression method using adjusted window and buffer sizes
     public List<LZ77CompressedData> compress(String input) {
-        List<LZ77CompressedData> compressedData = new ArrayList<>();
-        int cursor = 0;
-
-        while (cursor < input.length()) {
-            int matchLength = 0;
-            int matchDistance = 0;
-
-            //search for matches in the current size of sliding window(after adjustments)
-            for (int j = Math.max(cursor - windowSize, 0); j < cursor; j++) {
-                int k = 0;
-                while (k < bufferSize && cursor + k < input.length() && input.charAt(j + k) == input.charAt(cursor + k)) {
-                    k++;
-                }
-                if (k > matchLength) {
-                    matchLength = k;
-                    matchDistance = cursor - j;
-                }
-            	}
+        return compress(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //compresses any bytes (text or binary)
+    public List<LZ77CompressedData> compress(byte[] input) {
+        return compress(input, 0, input.length);
+    }
+
+    //compresses data[start..end), the bytes before start (up to the window size) can be matched but are not in the output
+    //(this is how a stream keeps the window of the blocks before the current one)
+    public List<LZ77CompressedData> compress(byte[] data, int start, int end) {
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer();
+        compress(data, start, end, tokens);
+        List<LZ77CompressedData> compressedData = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            compressedData.add(new LZ77CompressedData(tokens.getOffset(i), tokens.getLength(i),
+                    (char) (tokens.getNextByte(i) & 0xFF)));
+        }
+        return compressedData;
+    }
 
-            char nextChar = cursor + matchLength < input.length() ? input.charAt(cursor + matchLength) : '\0';
-            compressedData.add(new LZ77CompressedData(matchDistance, matchLength, nextChar));
+    //compresses any bytes into a token buffer (no object per tuple)
+    public LZ77TokenBuffer compressToBuffer(byte[] input) {
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(Math.max(16, input.length / 8));
+        compress(input, 0, input.length, tokens);
+        return tokens;
+    }
+
+    //compresses data[start..end) like above and adds the tuples to the token buffer
+    public void compress(byte[] data, int start, int end, LZ77TokenBuffer tokens) {
+        compress(data, start, end, () -> createMatchFinder(data, start, end), tokens);
+    }
+
+    //compresses the input with the dictionary content in the window before it (see CompressionDictionary), the tuples
+    //only cover the input and have to be decoded with the same dictionary
+    public void compress(byte[] input, CompressionDictionary dictionary, LZ77TokenBuffer tokens) {
+        byte[] data = dictionary.prepend(input);
+        int start = data.length - input.length;
+        compress(data, start, data.length, () -> {
+            //the dictionary keeps tables primed for its own settings, other settings add the dictionary bytes one by one
+            MatchFinder primed = matchFinderType == MatchFinderType.HASH_CHAIN
+                    ? dictionary.createMatchFinder(data, windowSize, bufferSize, maxChainDepth, niceLength) : null;
+            return primed != null ? primed : createMatchFinder(data, start, data.length);
+        }, tokens);
+    }
+
+    //picks the tuples of data[start..end) with match finders that already hold the bytes before start
+    private void compress(byte[] data, int start, int end, Supplier<MatchFinder> matchFinders, LZ77TokenBuffer tokens) {
+        switch (parseMode) {
+            case LAZY:
+                compressLazy(data, start, end, matchFinders.get(), tokens);
+                break;
+            case OPTIMAL:
+                //first pass to get the byte statistics, second pass priced by them
+                LZ77TokenBuffer firstPass = new LZ77TokenBuffer(Math.max(16, (end - start) / 8));
+                compressGreedy(data, start, end, matchFinders.get(), firstPass);
+                LZ77OptimalParser.fromFirstPass(firstPass).parse(data, start, end, matchFinders.get(),
+                        Math.min(bufferSize, maxChainDepth), tokens);
+                break;
+            default:
+                compressGreedy(data, start, end, matchFinders.get(), tokens);
+                break;
+        }
+    }
+
+    //takes the longest match at the cursor every time
+    private void compressGreedy(byte[] data, int start, int end, MatchFinder matchFinder, LZ77TokenBuffer tokens) {
+        //search for matches in the current size of sliding window(after adjustments)
+        int cursor = start;
+
+        while (cursor < end) {
+            //the match stops before the last byte so every tuple has a real next byte
+            int matchLength = Math.min(matchFinder.findLongestMatch(cursor), end - cursor - 1);
+            int matchDistance = matchLength > 0 ? matchFinder.getMatchDistance() : 0;
+
+            for (int i = 1; i <= matchLength; i++) {
+                matchFinder.skip(cursor + i);
+            }
+
+            tokens.add(matchDistance, matchLength, data[cursor + matchLength]);
             cursor += matchLength + 1;
         }
+    }
 
-        return compressedData;
+    //like greedy, but if the match at the next byte is clearly longer the current byte is sent alone and the longer match is used
+    //(the extra tuple costs a literal and a length, so the next match has to win by more than 2 bytes)
+    private void compressLazy(byte[] data, int start, int end, MatchFinder matchFinder, LZ77TokenBuffer tokens) {
+        int cursor = start;
+        int matchLength = start < end ? Math.min(matchFinder.findLongestMatch(start), end - start - 1) : 0;
+        int matchDistance = matchFinder.getMatchDistance();
+
+        while (cursor < end) {
+            int nextSkip = cursor + 1; //first position that is not in the match finder yet
+
+            //look one byte ahead unless the match is already good enough
+            if (matchLength > 0 && matchLength < Math.min(bufferSize, niceLength) && cursor + 1 < end) {
+                int nextLength = Math.min(matchFinder.findLongestMatch(cursor + 1), end - cursor - 2);
+                int nextDistance = matchFinder.getMatchDistance();
+                nextSkip = cursor + 2;
+                if (nextLength > matchLength + 2) {
+                    tokens.add(0, 0, data[cursor]);
+                    cursor++;
+                    matchLength = nextLength;
+                    matchDistance = nextDistance;
+                    continue;
+                }
+            }
+
+            for (int i = nextSkip; i <= cursor + matchLength; i++) {
+                matchFinder.skip(i);
+            }
+
+            tokens.add(matchLength > 0 ? matchDistance : 0, matchLength, data[cursor + matchLength]);
+            cursor += matchLength + 1;
+
+            if (cursor < end) {
+                matchLength = Math.min(matchFinder.findLongestMatch(cursor), end - cursor - 1);
+                matchDistance = matchFinder.getMatchDistance();
+            }
+        }
     }
     //public inner class to represent compressed data (same as in the regular lz77 method)
     public static class LZ77CompressedData {
         public int offset;
         public int length;
-        public char nextChar;
+        public char nextChar; //the byte after the match (0-255)
 
         //constructor
         public LZ77CompressedData(int offset, int length, char nextChar) {
@@ -0,0 +1,148 @@
+package CompressionProject;
+
+import java.util.Arrays;
+
+
+//price driven parser for LZ77Dynamic (instead of always taking the longest match at the cursor)
+//every tuple gets a price in bits from the Huffman code lengths of its literal, length code and distance code
+//plus the extra bits (the same alphabets CombinedCompression encodes, each with its own code)
+//and the cheapest path of tuples through the input is found with a shortest path over each segment
+public class LZ77OptimalParser {
+
+    private static final int SEGMENT_SIZE = 1 << 15; //positions solved together (bounds the memory of the parser)
+    private static final int NICE_LENGTH = 64; //matches this long are taken whole without trying the shorter lengths
+
+    //price in bits of each literal and of each length and distance code
+    private final int[] literalPrices;
+    private final int[] lengthPrices;
+    private final int[] distancePrices;
+
+    //constructor with a price for each of the 256 literals and each length and distance code (up to 256 entries)
+    public LZ77OptimalParser(int[] literalPrices, int[] lengthPrices, int[] distancePrices) {
+        if (literalPrices.length != 256 || lengthPrices.length != 256 || distancePrices.length != 256) {
+            throw new IllegalArgumentException("Byte prices must have 256 entries.");
+        }
+        this.literalPrices = literalPrices.clone();
+        this.lengthPrices = lengthPrices.clone();
+        this.distancePrices = distancePrices.clone();
+    }
+
+    //makes the parser with prices from the Huffman code lengths of an earlier parse (first pass of the two pass estimate)
+    public static LZ77OptimalParser fromFirstPass(LZ77TokenBuffer tokens) {
+        LengthDistanceCodes codes = LengthDistanceCodes.fromTokens(tokens);
+        return new LZ77OptimalParser(pricesFrom(tokens.literalStream()), pricesFrom(codes.getLengthCodes()),
+                pricesFrom(codes.getDistanceCodes()));
+    }
+
+    //price of each byte value in one stream
+    private static int[] pricesFrom(byte[] stream) {
+        int[] prices = new int[256];
+        if (stream.length == 0) {
+            Arrays.fill(prices, 8); //nothing known yet, a plain byte
+            return prices;
+        }
+        int[] counts = ByteStatistics.histogram(stream, 0, stream.length);
+        HuffmanCoding huffmanCoding = new HuffmanCoding();
+        huffmanCoding.buildHuffmanTree(counts);
+
+        int maxLength = 1;
+        for (int b = 0; b < 256; b++) {
+            prices[b] = huffmanCoding.getCodeLength((byte) b);
+            maxLength = Math.max(maxLength, prices[b]);
+        }
+        //bytes that were never used would get a new longer code, and a single symbol tree still costs 1 bit
+        for (int b = 0; b < 256; b++) {
+            if (prices[b] == 0) {
+                prices[b] = maxLength + 1;
+            }
+        }
+        if (ByteStatistics.distinct(counts) == 1) {
+            Arrays.fill(prices, 1);
+        }
+        return prices;
+    }
+
+    //price in bits of one tuple
+    private int price(int distance, int length, byte nextByte) {
+        int lengthCode = LengthDistanceCodes.code(length);
+        int price = literalPrices[nextByte & 0xFF] + lengthPrices[lengthCode] + LengthDistanceCodes.extraBitCount(lengthCode);
+        if (length > 0) {
+            int distanceCode = LengthDistanceCodes.code(distance - 1);
+            price += distancePrices[distanceCode] + LengthDistanceCodes.extraBitCount(distanceCode);
+        }
+        return price;
+    }
+
+    //parses data[start..end) into the cheapest tuples and adds them to the token buffer, the match finder must already
+    //be reset for data with end and have the positions before start added (same window and buffer size as the compressor)
+    public void parse(byte[] data, int start, int end, MatchFinder matchFinder, int maxMatches, LZ77TokenBuffer tokens) {
+        int[] matchLengths = new int[maxMatches];
+        int[] matchDistances = new int[maxMatches];
+
+        //for each position in the segment: cheapest cost to get there and the tuple that got there
+        int[] cost = new int[SEGMENT_SIZE + 1];
+        int[] fromLength = new int[SEGMENT_SIZE + 1];
+        int[] fromDistance = new int[SEGMENT_SIZE + 1];
+        int[] fromPos = new int[SEGMENT_SIZE + 1];
+        int[] path = new int[SEGMENT_SIZE + 1]; //end positions of the chosen tuples, collected backwards
+
+        int segmentStart = start;
+        while (segmentStart < end) {
+            int segmentEnd = Math.min(end, segmentStart + SEGMENT_SIZE);
+            int size = segmentEnd - segmentStart;
+            Arrays.fill(cost, 0, size + 1, Integer.MAX_VALUE);
+            cost[0] = 0;
+
+            for (int i = segmentStart; i < segmentEnd; i++) {
+                int base = cost[i - segmentStart];
+
+                //a tuple with no match (always possible, so every position is reachable)
+                relax(cost, fromLength, fromDistance, fromPos, i + 1 - segmentStart, base + price(0, 0, data[i]), i - segmentStart, 0, 0);
+
+                int count = matchFinder.findMatches(i, matchLengths, matchDistances);
+                if (count == 0) {
+                    continue;
+                }
+
+                //a tuple (match and next byte) must end inside the segment
+                int maxLength = segmentEnd - i - 1;
+                int longest = Math.min(matchLengths[count - 1], maxLength);
+                int shortest = longest >= NICE_LENGTH ? longest : HashChainMatchFinder.MIN_MATCH;
+
+                int m = 0;
+                for (int length = shortest; length <= longest; length++) {
+                    while (matchLengths[m] < length) {
+                        m++; //closest match that is at least this long
+                    }
+                    int distance = matchDistances[m];
+                    int target = i + length;
+                    relax(cost, fromLength, fromDistance, fromPos, target + 1 - segmentStart,
+                            base + price(distance, length, data[target]), i - segmentStart, length, distance);
+                }
+            }
+
+            //walk back from the end of the segment to collect the tuples, then add them in order
+            int count = 0;
+            for (int pos = size; pos > 0; pos = fromPos[pos]) {
+                path[count++] = pos;
+            }
+            while (count > 0) {
+                int pos = path[--count];
+                int length = fromLength[pos];
+                tokens.add(fromDistance[pos], length, data[segmentStart + fromPos[pos] + length]);
+            }
+            segmentStart = segmentEnd;
+        }
+    }
+
+    //keeps the new way to reach target if it is cheaper
+    private static void relax(int[] cost, int[] fromLength, int[] fromDistance, int[] fromPos,
+            int target, int newCost, int from, int length, int distance) {
+        if (newCost < cost[target]) {
+            cost[target] = newCost;
+            fromLength[target] = length;
+            fromDistance[target] = distance;
+            fromPos[target] = from;
+        }
+    }
+}
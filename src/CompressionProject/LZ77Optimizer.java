@@ -5,31 +5,71 @@ import java.util.HashMap;
 import java.util.Map;
 
 
-//LZ77Optimizer class to calc the entropy and estimating redundancy
+//LZ77Optimizer class to calc the entropy and estimating redundancy (the byte versions count with ByteStatistics)
 public class LZ77Optimizer {
 
 	//calc entropy of given strings
     public static double calculateEntropy(String input) {
-        Map<Character, Integer> frequencyMap = new HashMap<>();
-        for (char c : input.toCharArray()) {
-            frequencyMap.put(c, frequencyMap.getOrDefault(c, 0) + 1);
-        }
-
+        int[] counts = new int[256];
+        Map<Character, Integer> otherCounts = countChars(input, counts);
         double entropy = 0.0;
         int length = input.length();
-        for (Map.Entry<Character, Integer> entry : frequencyMap.entrySet()) {
-            double frequency = (double) entry.getValue() / length;
+        for (int count : counts) {
+            if (count > 0) {
+                double frequency = (double) count / length;
+                entropy -= frequency * (Math.log(frequency) / Math.log(2));
+            }
+        }
+        for (int count : otherCounts.values()) {
+            double frequency = (double) count / length;
             entropy -= frequency * (Math.log(frequency) / Math.log(2));
         }
 
         return entropy;
     }
 
+    //calc entropy of given bytes (bits per byte)
+    public static double calculateEntropy(byte[] input) {
+        return ByteStatistics.entropy(ByteStatistics.histogram(input, 0, input.length));
+    }
+
     
     //estimates redundancy as the proportion of repeated sequences (Patterned text files in src folder)
     public static double estimateRedundancy(String input) {
-        int uniqueChars = (int) input.chars().distinct().count();
+        int[] counts = new int[256];
+        int otherChars = countChars(input, counts).size();
+        int uniqueChars = ByteStatistics.distinct(counts) + otherChars;
         return 1.0 - ((double) uniqueChars / input.length());
     }
-}
 
+    //estimates redundancy of given bytes the same way (1 - distinct bytes / length)
+    public static double estimateRedundancy(byte[] input) {
+        int uniqueBytes = ByteStatistics.distinct(ByteStatistics.histogram(input, 0, input.length));
+        return 1.0 - ((double) uniqueBytes / input.length);
+    }
+
+    //entropy of the sampled chunks of data[start..end) in bits per byte (a quick look at inputs of any size)
+    public static double sampleEntropy(byte[] data, int start, int end) {
+        return ByteStatistics.sample(data, start, end).entropy();
+    }
+
+    //share of the sampled positions whose next 4 bytes already came up earlier in the same chunk, a quick probe for
+    //LZ77 matches (near 0 for random, encrypted or already compressed data)
+    public static double sampleMatchRate(byte[] data, int start, int end) {
+        return ByteStatistics.sample(data, start, end).repeatRate();
+    }
+
+    //counts the chars below 256 into counts and returns the counts of the others (only those are boxed)
+    private static Map<Character, Integer> countChars(String input, int[] counts) {
+        Map<Character, Integer> otherCounts = new HashMap<>();
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c < 256) {
+                counts[c]++;
+            } else {
+                otherCounts.merge(c, 1, Integer::sum);
+            }
+        }
+        return otherCounts;
+    }
+}
@@ -0,0 +1,134 @@
+package CompressionProject;
+
+import java.util.Arrays;
+
+
+//growable list of LZ77 tuples kept in parallel primitive arrays (no object per tuple)
+//both LZ77 and LZ77Dynamic write into it and the Huffman stage and LZ77.decompress read it directly,
+//clear() keeps the arrays so one buffer can be reused for many blocks
+public class LZ77TokenBuffer {
+
+    public static final int TUPLE_BYTES = 4; //2 bytes offset, 1 byte length, 1 byte next byte
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] offsets;
+    private int[] lengths;
+    private byte[] nextBytes;
+    private int size;
+    private long decodedLength; //bytes the tuples decode to
+
+    //constructor with the default capacity
+    public LZ77TokenBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    //constructor with room for the given number of tuples before the arrays grow
+    public LZ77TokenBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        }
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        nextBytes = new byte[capacity];
+    }
+
+    //adds one tuple: copy length bytes from offset back, then the next byte
+    public void add(int offset, int length, byte nextByte) {
+        if (size == offsets.length) {
+            grow();
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        nextBytes[size] = nextByte;
+        size++;
+        decodedLength += length + 1;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, offsets.length + (offsets.length >> 1));
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        nextBytes = Arrays.copyOf(nextBytes, capacity);
+    }
+
+    //removes all tuples but keeps the arrays
+    public void clear() {
+        size = 0;
+        decodedLength = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    public byte getNextByte(int index) {
+        checkIndex(index);
+        return nextBytes[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Tuple " + index + " of " + size);
+        }
+    }
+
+    //number of bytes the tuples decode to
+    public long getDecodedLength() {
+        return decodedLength;
+    }
+
+    //the next byte of every tuple (the literal stream)
+    public byte[] literalStream() {
+        return Arrays.copyOf(nextBytes, size);
+    }
+
+    //how many bytes before the first tuple the matches copy from (0 if they only copy from the tuples' own bytes)
+    public int windowNeeded() {
+        long needed = 0;
+        long pos = 0;
+        for (int i = 0; i < size; i++) {
+            if (lengths[i] > 0) {
+                needed = Math.max(needed, offsets[i] - pos);
+            }
+            pos += lengths[i] + 1;
+        }
+        return (int) needed;
+    }
+
+    //decodes the tuples into out[outPos..], out[windowStart..outPos) is the window matches may copy from
+    //returns the position after the last decoded byte
+    public int decodeInto(byte[] out, int windowStart, int outPos) {
+        if (outPos + decodedLength > out.length) {
+            throw new IllegalArgumentException("Output is too small for the decoded tuples.");
+        }
+        int pos = outPos;
+        for (int i = 0; i < size; i++) {
+            int offset = offsets[i];
+            int length = lengths[i];
+            if (length > 0 && (offset <= 0 || offset > pos - windowStart)) {
+                throw new IllegalArgumentException("Invalid LZ77 tuple " + i + ": offset " + offset + ", length " + length);
+            }
+            if (length > LZ77.SHORT_MATCH) {
+                pos = LZ77.copyMatch(out, pos, offset, length);
+            } else {
+                int start = pos - offset;
+                for (int k = 0; k < length; k++) {
+                    out[pos++] = out[start + k];
+                }
+            }
+            out[pos++] = nextBytes[i]; //every tuple has a next byte (also a 0 byte)
+        }
+        return pos;
+    }
+}
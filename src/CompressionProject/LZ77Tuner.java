@@ -0,0 +1,150 @@
+package CompressionProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+//picks the LZ77Dynamic settings for each block by trial compressing a few samples of the block with every candidate
+//(the entropy and redundancy thresholds of LZ77Dynamic only look at the whole input once, this follows the data block by block)
+//
+//the samples are spread over the block and each is compressed on its own (no window from before it) with every candidate,
+//the size is the real output size of CombinedCompression.encodeTokens. the candidates are ordered from cheap to expensive
+//and the cheapest one within 1% of the smallest output wins, so blocks with little redundancy get the fast settings
+//
+//all trial compression together is kept under budgetPercent of the block size, blocks too small for even one round of
+//samples are not tuned (choose returns null)
+public class LZ77Tuner {
+
+    public static final int DEFAULT_SAMPLE_SIZE = 16 * 1024;
+    public static final int DEFAULT_BUDGET_PERCENT = 20; //bytes trial compressed, in percent of the block size
+    public static final int MAX_SAMPLES = 8;
+
+    private static final double TOLERANCE = 0.01; //a cheaper candidate may be this much bigger than the best one
+
+    //one setting that can be picked for a block
+    public static class Candidate {
+        public final int windowSize;
+        public final int bufferSize;
+        public final int maxChainDepth;
+        public final LZ77Dynamic.ParseMode parseMode;
+
+        //constructor
+        public Candidate(int windowSize, int bufferSize, int maxChainDepth, LZ77Dynamic.ParseMode parseMode) {
+            if (windowSize <= 0 || bufferSize <= 0 || maxChainDepth <= 0) {
+                throw new IllegalArgumentException("Window size, buffer size and chain depth must be positive.");
+            }
+            this.windowSize = windowSize;
+            this.bufferSize = bufferSize;
+            this.maxChainDepth = maxChainDepth;
+            this.parseMode = parseMode;
+        }
+
+        //a compressor with these settings
+        public LZ77Dynamic createCompressor() {
+            LZ77Dynamic compressor = new LZ77Dynamic(windowSize, bufferSize);
+            compressor.setMaxChainDepth(maxChainDepth);
+            compressor.setParseMode(parseMode);
+            return compressor;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Window: %d, Buffer: %d, Chain: %d, %s", windowSize, bufferSize, maxChainDepth, parseMode);
+        }
+    }
+
+    //the default candidates, from cheap to expensive
+    public static List<Candidate> defaultCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate(4 * 1024, 64, 8, LZ77Dynamic.ParseMode.GREEDY)); //little redundancy, keep it fast
+        candidates.add(new Candidate(32 * 1024, 258, 32, LZ77Dynamic.ParseMode.GREEDY));
+        candidates.add(new Candidate(32 * 1024, 258, 64, LZ77Dynamic.ParseMode.LAZY));
+        candidates.add(new Candidate(64 * 1024, 1024, 256, LZ77Dynamic.ParseMode.LAZY)); //long repeats
+        return candidates;
+    }
+
+    private final List<Candidate> candidates;
+    private final int sampleSize;
+    private final int budgetPercent;
+
+    //constructor with the default candidates, sample size and budget
+    public LZ77Tuner() {
+        this(defaultCandidates(), DEFAULT_SAMPLE_SIZE, DEFAULT_BUDGET_PERCENT);
+    }
+
+    //constructor with custom candidates (ordered from cheap to expensive), sample size and CPU budget
+    public LZ77Tuner(List<Candidate> candidates, int sampleSize, int budgetPercent) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("At least one candidate is needed.");
+        }
+        if (sampleSize <= 0 || budgetPercent <= 0) {
+            throw new IllegalArgumentException("Sample size and budget must be positive.");
+        }
+        this.candidates = new ArrayList<>(candidates);
+        this.sampleSize = sampleSize;
+        this.budgetPercent = budgetPercent;
+    }
+
+    //a compressor for data[start..end), with the entropy and redundancy settings of LZ77Dynamic if the block is too small to tune
+    public LZ77Dynamic tune(byte[] data, int start, int end) {
+        Candidate candidate = choose(data, start, end);
+        if (candidate == null) {
+            return LZ77Dynamic.adjustedFor(ByteStatistics.sample(data, start, end), end - start);
+        }
+        return candidate.createCompressor();
+    }
+
+    //the best candidate for data[start..end), or null if the budget does not allow one sample for every candidate
+    public Candidate choose(byte[] data, int start, int end) {
+        if (start < 0 || end > data.length || start > end) {
+            throw new IllegalArgumentException("Invalid block range.");
+        }
+        int length = end - start;
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        long budget = (long) length * budgetPercent / 100;
+        int samples = (int) Math.min(MAX_SAMPLES, budget / ((long) sampleSize * candidates.size()));
+        if (samples == 0) {
+            return null;
+        }
+
+        long[] sizes = new long[candidates.size()];
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(Math.max(16, sampleSize / 4));
+        for (int s = 0; s < samples; s++) {
+            //the middle of the s-th of samples equal parts of the block
+            int sampleLength = Math.min(sampleSize, length);
+            long middle = start + (2L * s + 1) * length / (2L * samples);
+            int sampleStart = (int) Math.max(start, Math.min(end - sampleLength, middle - sampleLength / 2));
+            byte[] sample = Arrays.copyOfRange(data, sampleStart, sampleStart + sampleLength);
+            for (int c = 0; c < candidates.size(); c++) {
+                tokens.clear();
+                candidates.get(c).createCompressor().compress(sample, 0, sample.length, tokens);
+                sizes[c] += CombinedCompression.encodeTokens(tokens).length;
+            }
+        }
+
+        long best = Long.MAX_VALUE;
+        for (long size : sizes) {
+            best = Math.min(best, size);
+        }
+        for (int c = 0; c < candidates.size(); c++) {
+            if (sizes[c] <= best * (1 + TOLERANCE)) {
+                return candidates.get(c);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    //the candidates with a window no bigger than maxWindowSize (for a stream whose decoder keeps a fixed window)
+    public static List<Candidate> withMaxWindow(List<Candidate> candidates, int maxWindowSize) {
+        List<Candidate> result = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.windowSize <= maxWindowSize) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+}
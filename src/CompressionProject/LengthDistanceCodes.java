@@ -0,0 +1,180 @@
+package CompressionProject;
+
+
+//Deflate style codes for the match lengths and distances of LZ77 tuples
+//every value is sent as a small code (its bucket) that is Huffman coded with its own alphabet,
+//and the position inside the bucket is sent as plain extra bits:
+//
+//  values 0-3          code = value, no extra bits
+//  value v >= 4        n = highest bit of v, code = 2n + the bit below it, n-1 extra bits (the bits below those two)
+//
+//so every power of two range is split in two buckets (like the Deflate distance codes) and any int fits in codes 0-61
+//lengths are coded as they are (code 0 = literal only, no match), distances as distance-1
+public class LengthDistanceCodes {
+
+    public static final int MAX_CODE = 61; //code of the largest int
+
+    private final byte[] lengthCodes; //one code per tuple
+    private final byte[] distanceCodes; //one code per tuple with a match
+    private final byte[] extraBits; //extra bits of each tuple (length then distance), packed first bit highest
+
+    //constructor from the three streams (see fromTokens)
+    public LengthDistanceCodes(byte[] lengthCodes, byte[] distanceCodes, byte[] extraBits) {
+        this.lengthCodes = lengthCodes;
+        this.distanceCodes = distanceCodes;
+        this.extraBits = extraBits;
+    }
+
+    //splits the lengths and distances of the tuples into codes and extra bits
+    public static LengthDistanceCodes fromTokens(LZ77TokenBuffer tokens) {
+        int size = tokens.size();
+        byte[] lengthCodes = new byte[size];
+        int matches = 0;
+        long bits = 0;
+        for (int i = 0; i < size; i++) {
+            int length = tokens.getLength(i);
+            int code = code(length);
+            lengthCodes[i] = (byte) code;
+            bits += extraBitCount(code);
+            if (length > 0) {
+                matches++;
+                bits += extraBitCount(code(tokens.getOffset(i) - 1));
+            }
+        }
+
+        byte[] distanceCodes = new byte[matches];
+        byte[] extraBits = new byte[(int) ((bits + 7) / 8)];
+        long accumulator = 0; //lowest bitCount bits are waiting to be written
+        int bitCount = 0;
+        int out = 0;
+        int match = 0;
+        for (int i = 0; i < size; i++) {
+            int length = tokens.getLength(i);
+            int code = lengthCodes[i];
+            int count = extraBitCount(code);
+            accumulator = (accumulator << count) | (length - base(code));
+            bitCount += count;
+            //a field has at most 29 bits, so whole bytes are written after every field
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                extraBits[out++] = (byte) (accumulator >>> bitCount);
+            }
+            if (length > 0) {
+                int value = tokens.getOffset(i) - 1;
+                code = code(value);
+                distanceCodes[match++] = (byte) code;
+                count = extraBitCount(code);
+                accumulator = (accumulator << count) | (value - base(code));
+                bitCount += count;
+                while (bitCount >= 8) {
+                    bitCount -= 8;
+                    extraBits[out++] = (byte) (accumulator >>> bitCount);
+                }
+            }
+        }
+        if (bitCount > 0) {
+            extraBits[out] = (byte) (accumulator << (8 - bitCount));
+        }
+        return new LengthDistanceCodes(lengthCodes, distanceCodes, extraBits);
+    }
+
+    //rebuilds the tuples from the codes, the extra bits and the literal of every tuple
+    public LZ77TokenBuffer toTokens(byte[] literals) {
+        if (literals.length != lengthCodes.length) {
+            throw new IllegalArgumentException("Length codes do not match the number of tuples.");
+        }
+        LZ77TokenBuffer tokens = new LZ77TokenBuffer(literals.length);
+        ExtraBitReader reader = new ExtraBitReader(extraBits);
+        int match = 0;
+        for (int i = 0; i < literals.length; i++) {
+            int lengthCode = lengthCodes[i];
+            if (lengthCode < 0 || lengthCode > MAX_CODE) {
+                throw new IllegalArgumentException("Invalid length code " + lengthCode + " in tuple " + i + ".");
+            }
+            int length = base(lengthCode) + reader.read(extraBitCount(lengthCode));
+            int offset = 0;
+            if (length > 0) {
+                if (match == distanceCodes.length) {
+                    throw new IllegalArgumentException("Distance codes do not match the number of matches.");
+                }
+                int distanceCode = distanceCodes[match++];
+                if (distanceCode < 0 || distanceCode > MAX_CODE) {
+                    throw new IllegalArgumentException("Invalid distance code " + distanceCode + " in tuple " + i + ".");
+                }
+                //the largest code with all extra bits set is Integer.MAX_VALUE, adding 1 to it overflows and is rejected
+                offset = base(distanceCode) + reader.read(extraBitCount(distanceCode)) + 1;
+                if (offset <= 0) {
+                    throw new IllegalArgumentException("Invalid distance in tuple " + i + ".");
+                }
+            }
+            tokens.add(offset, length, literals[i]);
+        }
+        if (match != distanceCodes.length || !reader.isAtEnd()) {
+            throw new IllegalArgumentException("Codes and extra bits do not match the number of tuples.");
+        }
+        return tokens;
+    }
+
+    //reads the packed extra bits, first bit highest
+    private static final class ExtraBitReader {
+        private final byte[] in;
+        private int pos;
+        private long accumulator; //lowest bitCount bits are the next bits
+        private int bitCount;
+
+        ExtraBitReader(byte[] in) {
+            this.in = in;
+        }
+
+        int read(int count) {
+            while (bitCount < count) {
+                if (pos == in.length) {
+                    throw new IllegalArgumentException("Extra bits are truncated.");
+                }
+                accumulator = (accumulator << 8) | (in[pos++] & 0xFF);
+                bitCount += 8;
+            }
+            bitCount -= count;
+            return (int) ((accumulator >>> bitCount) & ((1L << count) - 1));
+        }
+
+        //true if only the padding of the last byte is left
+        boolean isAtEnd() {
+            return pos == in.length && bitCount < 8;
+        }
+    }
+
+    public byte[] getLengthCodes() {
+        return lengthCodes;
+    }
+
+    public byte[] getDistanceCodes() {
+        return distanceCodes;
+    }
+
+    public byte[] getExtraBits() {
+        return extraBits;
+    }
+
+    //the bucket of a value that is not negative
+    public static int code(int value) {
+        if (value < 4) {
+            return value;
+        }
+        int n = 31 - Integer.numberOfLeadingZeros(value);
+        return 2 * n + ((value >>> (n - 1)) & 1);
+    }
+
+    //number of extra bits sent after the code
+    public static int extraBitCount(int code) {
+        return code < 4 ? 0 : (code >> 1) - 1;
+    }
+
+    //smallest value of the bucket
+    public static int base(int code) {
+        if (code < 4) {
+            return code;
+        }
+        return (2 | (code & 1)) << ((code >> 1) - 1);
+    }
+}
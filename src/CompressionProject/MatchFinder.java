@@ -0,0 +1,22 @@
+package CompressionProject;
+
+
+//match finder used by the LZ77 classes to look up the longest earlier match at the cursor (instead of scanning the whole window)
+public interface MatchFinder {
+
+    //starts a new search over data[0..end), all old positions are forgotten
+    void reset(byte[] data, int end);
+
+    //returns the length of the longest match at pos (0 if none) and adds pos to the finder, positions must be given in order
+    int findLongestMatch(int pos);
+
+    //finds all the matches at pos that are longer than the ones before them (lengths go up, each with the first distance
+    //found for it), fills the arrays and returns how many were found, adds pos to the finder like findLongestMatch
+    int findMatches(int pos, int[] lengths, int[] distances);
+
+    //distance back to the match found in the last findLongestMatch call
+    int getMatchDistance();
+
+    //adds pos to the finder without searching (used for the positions covered by a match)
+    void skip(int pos);
+}
@@ -0,0 +1,64 @@
+package CompressionProject;
+
+import java.nio.ByteBuffer;
+
+
+//the varints of the block headers, stream headers and interleaved stream jump tables (CombinedCompression,
+//HuffmanCoding and FseCoding all write them with these methods):
+//7 bits per byte, lowest bits first, the high bit is set on every byte but the last
+final class Varint {
+
+    private Varint() {
+    }
+
+    //writes a value that is not negative
+    static void put(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    //reads a varint that must fit a non negative int, the buffer moves past it
+    static int get(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint.");
+    }
+
+    //reads a varint that must fit a non negative long (like the stream headers, count << 2 | mode)
+    static long getLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint.");
+    }
+
+    //number of bytes put writes for the value
+    static int size(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}